@@ -0,0 +1,86 @@
+// k6 load test for the login rate limits: legitimate logins while a
+// credential-stuffing attack runs against /usersLogin.
+//
+//   k6 run --summary-export=build/loadtest-attack.json loadtest/login-attack.js
+//
+// The legitimate users log in from their own addresses at a normal pace and
+// must keep succeeding (thresholds below); the attackers try random usernames
+// from a few addresses and are expected to get 429 almost always. Client
+// addresses are simulated with X-Forwarded-For, which the server trusts from
+// localhost (server.forward-headers-strategy=native). Compare the legit
+// http_req_duration with and without the ATTACK_RATE scenario (ATTACK_RATE=0),
+// and users_rate_limit_rejected_total on /actuator/prometheus.
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = Number(__ENV.USERS || 200);
+const ATTACK_RATE = Number(__ENV.ATTACK_RATE || 2000);
+const ATTACKERS = Number(__ENV.ATTACKERS || 5);
+
+const legitScenarios = {
+  legit: {
+    executor: 'constant-arrival-rate',
+    exec: 'legit',
+    rate: 20,
+    timeUnit: '1s',
+    duration: '2m',
+    preAllocatedVUs: 20,
+    maxVUs: 100,
+  },
+};
+
+const attackScenarios = ATTACK_RATE > 0 ? {
+  attack: {
+    executor: 'constant-arrival-rate',
+    exec: 'attack',
+    rate: ATTACK_RATE,
+    timeUnit: '1s',
+    duration: '2m',
+    preAllocatedVUs: 200,
+    maxVUs: 1000,
+  },
+} : {};
+
+export const options = {
+  scenarios: Object.assign({}, legitScenarios, attackScenarios),
+  thresholds: {
+    'checks{scenario:legit}': ['rate>0.99'],
+    'http_req_duration{scenario:legit}': ['p(95)<500'],
+  },
+};
+
+function jsonHeaders(ip) {
+  return { headers: { 'Content-Type': 'application/json', 'X-Forwarded-For': ip } };
+}
+
+function userIp(i) {
+  return `10.0.${Math.floor(i / 250)}.${i % 250 + 1}`;
+}
+
+export function setup() {
+  const users = [];
+  for (let i = 0; i < USERS; i++) {
+    const credentials = { username: `attack-test-${Date.now()}-${i}`, password: 'password' };
+    const res = http.post(`${BASE_URL}/users`, JSON.stringify(credentials), jsonHeaders(userIp(i)));
+    if (res.status === 201) {
+      users.push({ credentials, ip: userIp(i) });
+    }
+  }
+  return { users };
+}
+
+// each user logs in about every 10 s on average, within the per-username limit of 10/min
+export function legit(data) {
+  const user = data.users[Math.floor(Math.random() * data.users.length)];
+  const res = http.post(`${BASE_URL}/usersLogin`, JSON.stringify(user.credentials), jsonHeaders(user.ip));
+  check(res, { 'legit login 200': (r) => r.status === 200 });
+}
+
+export function attack() {
+  const ip = `203.0.113.${Math.floor(Math.random() * ATTACKERS) + 1}`;
+  const credentials = { username: `guess-${Math.floor(Math.random() * 1e9)}`, password: 'password123' };
+  const res = http.post(`${BASE_URL}/usersLogin`, JSON.stringify(credentials), jsonHeaders(ip));
+  check(res, { 'attack rejected': (r) => r.status === 429 || r.status === 400 });
+}
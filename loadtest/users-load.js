@@ -0,0 +1,56 @@
+// k6 load test for the read-heavy user endpoints.
+//
+// Compare the thread modes by running the same script against
+//   ./gradlew bootRun                    (platform threads)
+//   ./gradlew bootRun -PvirtualThreads   (virtual threads, JDK 21)
+// with
+//   k6 run --summary-export=build/loadtest-<mode>.json loadtest/users-load.js
+// and comparing http_req_duration (p95/p99) and http_reqs.
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = Number(__ENV.USERS || 50);
+const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
+
+export const options = {
+  scenarios: {
+    sessions: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: 200 },
+        { duration: '1m', target: 1000 },
+        { duration: '30s', target: 0 },
+      ],
+    },
+  },
+};
+
+export function setup() {
+  const sessions = [];
+  for (let i = 0; i < USERS; i++) {
+    const body = JSON.stringify({ username: `load-${Date.now()}-${i}`, password: 'password' });
+    // registration is rate limited per client IP, so every user registers from its own address
+    const headers = { 'Content-Type': 'application/json', 'X-Forwarded-For': `10.0.${Math.floor(i / 250)}.${i % 250 + 1}` };
+    const res = http.post(`${BASE_URL}/users`, body, { headers });
+    if (res.status === 201) {
+      sessions.push({ id: res.json('id'), token: res.json('token') });
+    }
+  }
+  return { sessions };
+}
+
+export default function (data) {
+  const session = data.sessions[Math.floor(Math.random() * data.sessions.length)];
+
+  const byToken = http.post(`${BASE_URL}/fetchByToken`, JSON.stringify(session.token), JSON_HEADERS);
+  check(byToken, { 'fetchByToken 200': (r) => r.status === 200 });
+
+  const profile = http.get(`${BASE_URL}/users/${session.id}`);
+  check(profile, { 'profile 200': (r) => r.status === 200 });
+
+  const page = http.get(`${BASE_URL}/users?limit=50`);
+  check(page, { 'users page 200': (r) => r.status === 200 });
+}
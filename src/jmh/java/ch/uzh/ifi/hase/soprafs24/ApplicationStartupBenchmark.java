@@ -0,0 +1,70 @@
+package ch.uzh.ifi.hase.soprafs24;
+
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApplicationStartupBenchmark
+ * Time from starting the application context to the first answered user
+ * lookup, on an empty in-memory database and on a file-backed database that
+ * already holds the users (the prod profile after a restart: Flyway validates
+ * the schema and H2 opens the existing file). The file is created once per
+ * trial, every measured start opens it again. The in-memory database always
+ * starts empty, so users only matters for "file". profile compares the
+ * eager default with the lazy startup profile.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+public class ApplicationStartupBenchmark {
+
+  @Param({ "mem", "file" })
+  public String storage;
+
+  @Param({ "0", "1000000" })
+  public int users;
+
+  @Param({ "default", "startup" })
+  public String profile;
+
+  private Path directory;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("user-db");
+    if ("file".equals(storage)) {
+      try (ConfigurableApplicationContext context = BenchmarkApplication.start(storage, directory)) {
+        BenchmarkApplication.populate(context, users);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public Object startAndLookUp() {
+    try (ConfigurableApplicationContext context = startContext()) {
+      return context.getBean("userRepository", UserRepository.class).findByUsername("user1");
+    }
+  }
+
+  private ConfigurableApplicationContext startContext() {
+    return "startup".equals(profile)
+        ? BenchmarkApplication.start(storage, directory, "startup")
+        : BenchmarkApplication.start(storage, directory);
+  }
+}
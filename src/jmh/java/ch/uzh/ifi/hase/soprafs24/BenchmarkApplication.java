@@ -0,0 +1,66 @@
+package ch.uzh.ifi.hase.soprafs24;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * BenchmarkApplication
+ * Starts the application without a web server for the database benchmarks,
+ * either on the in-memory database ("mem") or with the prod profile on a
+ * file-backed database in the given directory ("file"). The Hibernate caches
+ * are disabled so that every lookup reaches the database. Further profiles,
+ * e.g. startup, can be added.
+ */
+public final class BenchmarkApplication {
+
+  private static final int INSERT_CHUNK = 500_000;
+
+  private BenchmarkApplication() {
+  }
+
+  public static ConfigurableApplicationContext start(String storage, Path directory, String... profiles) {
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.main.banner-mode=off",
+            "logging.level.root=WARN",
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+            "spring.jpa.properties.hibernate.generate_statistics=false");
+    builder.profiles(profiles);
+    if ("file".equals(storage)) {
+      builder.profiles("prod").properties("user.db.path=" + directory.resolve("users").toAbsolutePath());
+    } else if (!"mem".equals(storage)) {
+      throw new IllegalArgumentException("unknown storage " + storage);
+    }
+    return builder.run();
+  }
+
+  /**
+   * Inserts the users 1..count (username "user<id>", token tokenOf(id))
+   * with set-based INSERT ... SELECT statements.
+   */
+  public static void populate(ConfigurableApplicationContext context, int count) {
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+    for (long from = 1; from <= count; from += INSERT_CHUNK) {
+      long to = Math.min(from + INSERT_CHUNK - 1, count);
+      jdbc.update("INSERT INTO USER (ID, PASSWORD, USERNAME, TOKEN, STATUS, CREATION_DATE)"
+          + " SELECT X, 'hash', CONCAT('user', X), CAST(CONCAT('00000000-0000-0000-0000-', LPAD(X, 12, '0')) AS UUID), 1, CURRENT_DATE"
+          + " FROM SYSTEM_RANGE(?, ?)", from, to);
+    }
+    jdbc.execute("ALTER SEQUENCE USER_ID_SEQ RESTART WITH " + (count + 1));
+  }
+
+  /**
+   * @return the token populate gives the user: the decimal digits of the id
+   *     as the last group of an otherwise zero UUID
+   */
+  public static UUID tokenOf(long id) {
+    return new UUID(0L, Long.parseLong(Long.toString(id), 16));
+  }
+}
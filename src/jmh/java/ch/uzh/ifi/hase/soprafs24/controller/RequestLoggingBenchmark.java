@@ -0,0 +1,141 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RequestLoggingBenchmark
+ * Logging overhead of one POST /fetchByToken request.
+ * before: the four synchronous INFO lines the endpoint used to write, including
+ * the token and the toString of the DTO.
+ * after: the current DEBUG line with request and user id in the MDC, once with
+ * DEBUG disabled (the production level) and once enabled through the
+ * AsyncAppender of logback-spring.xml.
+ * Output is written to a discarding stream so only the logging work is
+ * measured, not the console.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class RequestLoggingBenchmark {
+
+  private static final String PATTERN =
+      "%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%t] [%X{requestId:-}] [%X{userId:-}] %logger{39} : %m%n";
+
+  private LoggerContext loggerContext;
+
+  private Logger syncLogger;
+
+  private Logger asyncLogger;
+
+  private Logger disabledLogger;
+
+  private UUID token;
+
+  private UserClientVersionDTO dto;
+
+  @Setup
+  public void setup() {
+    loggerContext = new LoggerContext();
+
+    OutputStreamAppender<ILoggingEvent> sink = new OutputStreamAppender<>();
+    sink.setContext(loggerContext);
+    sink.setEncoder(encoder());
+    sink.setOutputStream(OutputStream.nullOutputStream());
+    sink.start();
+
+    OutputStreamAppender<ILoggingEvent> asyncSink = new OutputStreamAppender<>();
+    asyncSink.setContext(loggerContext);
+    asyncSink.setEncoder(encoder());
+    asyncSink.setOutputStream(OutputStream.nullOutputStream());
+    asyncSink.start();
+
+    AsyncAppender async = new AsyncAppender();
+    async.setContext(loggerContext);
+    async.setQueueSize(8192);
+    async.setDiscardingThreshold(1638);
+    async.setNeverBlock(true);
+    async.addAppender(asyncSink);
+    async.start();
+
+    syncLogger = logger("sync", Level.INFO);
+    syncLogger.addAppender(sink);
+    asyncLogger = logger("async", Level.DEBUG);
+    asyncLogger.addAppender(async);
+    disabledLogger = logger("disabled", Level.INFO);
+    disabledLogger.addAppender(async);
+
+    token = UUID.randomUUID();
+    dto = new UserClientVersionDTO();
+    dto.setId(1L);
+    dto.setUsername("testUsername");
+    dto.setToken(token);
+    dto.setStatus(UserStatus.ONLINE);
+  }
+
+  @TearDown
+  public void tearDown() {
+    loggerContext.stop();
+  }
+
+  @Benchmark
+  public void before() {
+    syncLogger.info("Received token from client: {}", token);
+    syncLogger.info("User found: {}", dto.getUsername());
+    syncLogger.info("Converted boy: {}", dto);
+    syncLogger.info("User found: '{}'", dto);
+  }
+
+  @Benchmark
+  public void afterDebugDisabled() {
+    logRequest(disabledLogger);
+  }
+
+  @Benchmark
+  public void afterDebugEnabledAsync() {
+    logRequest(asyncLogger);
+  }
+
+  private void logRequest(Logger logger) {
+    MDC.put("requestId", "5f3a9c2e1b7d4e60");
+    MDC.put("userId", "1");
+    try {
+      logger.debug("Resolved token");
+    } finally {
+      MDC.remove("requestId");
+      MDC.remove("userId");
+    }
+  }
+
+  private PatternLayoutEncoder encoder() {
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern(PATTERN);
+    encoder.start();
+    return encoder;
+  }
+
+  private Logger logger(String name, Level level) {
+    Logger logger = loggerContext.getLogger(name);
+    logger.setLevel(level);
+    logger.setAdditive(false);
+    return logger;
+  }
+}
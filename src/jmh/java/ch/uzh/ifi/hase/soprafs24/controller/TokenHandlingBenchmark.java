@@ -0,0 +1,75 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.uzh.ifi.hase.soprafs24.rest.dto.TokenDTO;
+import ch.uzh.ifi.hase.soprafs24.service.Tokens;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenHandlingBenchmark
+ * Cost of turning the body of POST /fetchByToken into a token cache lookup.
+ * before: the body as String, regex to strip the quotes, String key;
+ * after: TokenDTO read from the body bytes, or the X-User-Token header
+ * parsed by Tokens, UUID key. Run with the gc profiler of the jmh task for
+ * the bytes allocated per request (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class TokenHandlingBenchmark {
+
+  private static final int SESSIONS = 10_000;
+
+  private final Map<String, Long> usersByStringToken = new ConcurrentHashMap<>();
+
+  private final Map<UUID, Long> usersByToken = new ConcurrentHashMap<>();
+
+  private ObjectReader tokenReader;
+
+  private byte[] body;
+
+  private String header;
+
+  @Setup
+  public void setup() {
+    UUID token = null;
+    for (long id = 1; id <= SESSIONS; id++) {
+      token = UUID.randomUUID();
+      usersByStringToken.put(token.toString(), id);
+      usersByToken.put(token, id);
+    }
+    tokenReader = Jackson2ObjectMapperBuilder.json().build().readerFor(TokenDTO.class);
+    body = ("\"" + token + "\"").getBytes(StandardCharsets.UTF_8);
+    header = token.toString();
+  }
+
+  @Benchmark
+  public Long before() {
+    String token = new String(body, StandardCharsets.UTF_8);
+    token = token.trim().replaceAll("^\"|\"$", "");
+    return usersByStringToken.get(token.trim());
+  }
+
+  @Benchmark
+  public Long afterBody() throws IOException {
+    TokenDTO tokenDTO = tokenReader.readValue(body);
+    return usersByToken.get(tokenDTO.getToken());
+  }
+
+  @Benchmark
+  public Long afterHeader() {
+    return usersByToken.get(Tokens.parse(header));
+  }
+}
@@ -0,0 +1,106 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.uzh.ifi.hase.soprafs24.config.DtoCodecs;
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+import ch.uzh.ifi.hase.soprafs24.service.PasswordHasher;
+import ch.uzh.ifi.hase.soprafs24.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs24.service.RateLimiter;
+import ch.uzh.ifi.hase.soprafs24.service.UserEventBroadcaster;
+import ch.uzh.ifi.hase.soprafs24.service.UserImportService;
+import ch.uzh.ifi.hase.soprafs24.service.UserStatusService;
+import ch.uzh.ifi.hase.soprafs24.service.UserRevision;
+import ch.uzh.ifi.hase.soprafs24.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * UserControllerBenchmark
+ * Full MockMvc round trips (request mapping, argument resolution, mapping,
+ * JSON serialization) of the user endpoints with a stubbed UserService.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class UserControllerBenchmark {
+
+  private MockMvc mockMvc;
+
+  private String tokenBody;
+
+  @Setup
+  public void setup() {
+    List<UserSummary> page = new ArrayList<>();
+    for (long id = 1; id <= 50; id++) {
+      page.add(new UserSummary(id, "user" + id, UUID.randomUUID()));
+    }
+    User user = user(1L);
+    tokenBody = "\"" + user.getToken() + "\"";
+
+    UserService userService = Mockito.mock(UserService.class);
+    Mockito.when(userService.findUserToDisplayById(1L))
+        .thenReturn(new UserProfile(1L, user.getUsername(), user.getCreationDate(), user.getBirthDate()));
+    Mockito.when(userService.fetchUserFromToken(user.getToken())).thenReturn(user);
+    Mockito.when(userService.getUsersAfter(0L, 50)).thenReturn(page);
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    UserController userController = new UserController(userService, new PresenceRegistry(Duration.ofMinutes(5)),
+        Mockito.mock(PasswordHasher.class), new UserRevision(), Mockito.mock(UserEventBroadcaster.class),
+        Mockito.mock(UserImportService.class), Mockito.mock(UserStatusService.class), new DtoCodecs(objectMapper),
+        Runnable::run, Mockito.mock(RateLimiter.class), 100000);
+
+    mockMvc = MockMvcBuilders.standaloneSetup(userController)
+        .setMessageConverters(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper))
+        .build();
+  }
+
+  private static User user(long id) {
+    User user = new User();
+    user.setId(id);
+    user.setUsername("user" + id);
+    user.setPassword("hash");
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.OFFLINE);
+    user.setCreationDate(new Date(1));
+    return user;
+  }
+
+  @Benchmark
+  public int getUserById() throws Exception {
+    return mockMvc.perform(get("/users/1")).andReturn().getResponse().getContentLength();
+  }
+
+  @Benchmark
+  public int fetchByToken() throws Exception {
+    return mockMvc.perform(post("/fetchByToken").contentType(MediaType.APPLICATION_JSON).content(tokenBody))
+        .andReturn().getResponse().getContentLength();
+  }
+
+  @Benchmark
+  public int getUsersPage() throws Exception {
+    return mockMvc.perform(get("/users").param("limit", "50")).andReturn().getResponse().getContentLength();
+  }
+}
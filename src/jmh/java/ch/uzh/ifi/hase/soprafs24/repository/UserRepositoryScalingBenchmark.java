@@ -0,0 +1,85 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.BenchmarkApplication;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserRepositoryScalingBenchmark
+ * Cost of the UserRepository lookups as the USER table grows from 10k to 10M
+ * rows, on the in-memory and on the file-backed (prod profile) database. Every
+ * call looks up a random user, so the file-backed numbers include page cache
+ * misses once the table outgrows CACHE_SIZE. The in-memory database needs a
+ * heap of several GB for 10M users.
+ * Run with ./gradlew jmh -PjmhIncludes=UserRepositoryScaling
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class UserRepositoryScalingBenchmark {
+
+  @Param({ "10000", "100000", "1000000", "10000000" })
+  public int users;
+
+  @Param({ "mem", "file" })
+  public String storage;
+
+  private Path directory;
+
+  private ConfigurableApplicationContext context;
+
+  private UserRepository userRepository;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("user-db");
+    context = BenchmarkApplication.start(storage, directory);
+    BenchmarkApplication.populate(context, users);
+    userRepository = context.getBean("userRepository", UserRepository.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public User findById() {
+    return userRepository.findById(randomId());
+  }
+
+  @Benchmark
+  public User findByUsername() {
+    return userRepository.findByUsername("user" + randomId());
+  }
+
+  @Benchmark
+  public User findByToken() {
+    return userRepository.findByToken(BenchmarkApplication.tokenOf(randomId()));
+  }
+
+  @Benchmark
+  public List<UserSummary> findSummariesAfter() {
+    return userRepository.findSummariesAfter(randomId(), PageRequest.of(0, 50));
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, users + 1L);
+  }
+}
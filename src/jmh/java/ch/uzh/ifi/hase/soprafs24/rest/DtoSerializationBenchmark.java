@@ -0,0 +1,101 @@
+package ch.uzh.ifi.hase.soprafs24.rest;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DtoSerializationBenchmark
+ * Serialize and deserialize throughput of a single DTO with the reflective
+ * bean (de)serializers and with Afterburner, through the ObjectMapper on
+ * every call and through a pre-built ObjectWriter/ObjectReader (DtoCodecs).
+ * Run with the gc profiler of the jmh task for the bytes allocated per DTO.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class DtoSerializationBenchmark {
+
+  @Param({ "client", "display" })
+  public String dto;
+
+  @Param({ "false", "true" })
+  public boolean afterburner;
+
+  private ObjectMapper mapper;
+
+  private ObjectWriter writer;
+
+  private ObjectReader reader;
+
+  private Class<?> type;
+
+  private Object value;
+
+  private byte[] json;
+
+  @Setup
+  public void setup() throws IOException {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    if (afterburner) {
+      builder.postConfigurer(objectMapper -> objectMapper.registerModule(new AfterburnerModule()));
+    }
+    mapper = builder.build();
+
+    if ("display".equals(dto)) {
+      UserToDisplayClientVersionDTO user = new UserToDisplayClientVersionDTO();
+      user.setId(42L);
+      user.setUsername("user42");
+      user.setStatus(UserStatus.ONLINE);
+      user.setCreationDate(LocalDate.of(2024, 3, 1));
+      user.setBirthDate(LocalDate.of(2000, 1, 1));
+      value = user;
+    } else {
+      UserClientVersionDTO user = new UserClientVersionDTO();
+      user.setId(42L);
+      user.setUsername("user42");
+      user.setStatus(UserStatus.ONLINE);
+      user.setToken(UUID.randomUUID());
+      value = user;
+    }
+    type = value.getClass();
+    writer = mapper.writerFor(type);
+    reader = mapper.readerFor(type);
+    json = mapper.writeValueAsBytes(value);
+  }
+
+  @Benchmark
+  public byte[] serializeWithMapper() throws IOException {
+    return mapper.writeValueAsBytes(value);
+  }
+
+  @Benchmark
+  public byte[] serializeWithWriter() throws IOException {
+    return writer.writeValueAsBytes(value);
+  }
+
+  @Benchmark
+  public Object deserializeWithMapper() throws IOException {
+    return mapper.readValue(json, type);
+  }
+
+  @Benchmark
+  public Object deserializeWithReader() throws IOException {
+    return reader.readValue(json);
+  }
+}
@@ -0,0 +1,95 @@
+package ch.uzh.ifi.hase.soprafs24.rest;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ResponseFormatBenchmark
+ * Encode time of a GET /users page (100 users) in the formats offered by
+ * content negotiation, with and without gzip (server.compression). The
+ * encoded size of every format is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class ResponseFormatBenchmark {
+
+  @Param({ "json", "ndjson", "smile", "cbor" })
+  public String format;
+
+  @Param({ "false", "true" })
+  public boolean gzip;
+
+  private ObjectMapper mapper;
+
+  private List<UserClientVersionDTO> users;
+
+  @Setup
+  public void setup() throws IOException {
+    switch (format) {
+      case "smile":
+        mapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        break;
+      case "cbor":
+        mapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        break;
+      default:
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+    users = new ArrayList<>();
+    for (long id = 1; id <= 100; id++) {
+      UserClientVersionDTO user = new UserClientVersionDTO();
+      user.setId(id);
+      user.setUsername("user" + id);
+      user.setStatus(id % 3 == 0 ? UserStatus.ONLINE : UserStatus.OFFLINE);
+      user.setToken(UUID.randomUUID());
+      users.add(user);
+    }
+    System.out.printf("%n%s%s: %d bytes per page%n", format, gzip ? "+gzip" : "", encode().length);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    if (gzip) {
+      try (GZIPOutputStream compressed = new GZIPOutputStream(bytes)) {
+        write(compressed);
+      }
+    } else {
+      write(bytes);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void write(OutputStream out) throws IOException {
+    if (!"ndjson".equals(format)) {
+      mapper.writeValue(out, users);
+      return;
+    }
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      for (UserClientVersionDTO user : users) {
+        generator.writeObject(user);
+        generator.writeRaw('\n');
+      }
+    }
+  }
+}
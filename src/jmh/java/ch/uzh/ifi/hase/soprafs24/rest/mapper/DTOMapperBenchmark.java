@@ -0,0 +1,49 @@
+package ch.uzh.ifi.hase.soprafs24.rest.mapper;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTOMapperBenchmark
+ * Cost of converting a User into the DTOs returned by the user endpoints.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class DTOMapperBenchmark {
+
+  private User user;
+
+  @Setup
+  public void setup() {
+    user = new User();
+    user.setId(1L);
+    user.setUsername("testUsername");
+    user.setPassword("testPassword");
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.ONLINE);
+    user.setCreationDate(new Date(1));
+    user.setBirthDate(Date.valueOf("2000-01-01"));
+  }
+
+  @Benchmark
+  public UserClientVersionDTO convertEntityToUserClientVersionDTO() {
+    return DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(user);
+  }
+
+  @Benchmark
+  public UserToDisplayClientVersionDTO convertEntitytoUserToDisplayClientVersionDTO() {
+    return DTOMapper.INSTANCE.convertEntitytoUserToDisplayClientVersionDTO(user);
+  }
+}
@@ -0,0 +1,54 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PasswordHasherBenchmark
+ * Cost of one bcrypt verification per strength (single thread) and the login
+ * throughput the PasswordHasher pool reaches on this machine when all request
+ * threads verify at once. Logins per second per instance are roughly
+ * loginThroughput of the configured strength on the instance class (F2).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class PasswordHasherBenchmark {
+
+  @Param({ "8", "10", "12" })
+  public int strength;
+
+  private BCryptPasswordEncoder encoder;
+
+  private PasswordHasher passwordHasher;
+
+  private String hash;
+
+  @Setup
+  public void setup() {
+    encoder = new BCryptPasswordEncoder(strength);
+    passwordHasher = new PasswordHasher(strength, 0, 1024);
+    hash = encoder.encode("testPassword");
+  }
+
+  @TearDown
+  public void tearDown() {
+    passwordHasher.shutdown();
+  }
+
+  @Benchmark
+  public boolean verifySingleThread() {
+    return encoder.matches("testPassword", hash);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public boolean loginThroughput() {
+    return passwordHasher.matches("testPassword", hash).join();
+  }
+}
@@ -0,0 +1,101 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserServiceBenchmark
+ * Per-call cost of the UserService hot paths with the database replaced by a
+ * Mockito stub, i.e. the service's own work without the SQL round trip.
+ * checkLoginCorrect is measured with a cheap (4) and the default (10) bcrypt
+ * cost to separate the service overhead from the hashing.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class UserServiceBenchmark {
+
+  @Param({ "4", "10" })
+  public int strength;
+
+  private UserService userService;
+
+  private PasswordHasher passwordHasher;
+
+  private UsernamePasswordDTO credentials;
+
+  private UUID knownToken;
+
+  private UUID unknownToken;
+
+  @Setup
+  public void setup() {
+    passwordHasher = new PasswordHasher(strength, 0, 1024);
+
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("testUsername");
+    user.setPassword(passwordHasher.hash("testPassword").join());
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.ONLINE);
+    user.setCreationDate(new Date(1));
+    knownToken = user.getToken();
+    unknownToken = UUID.randomUUID();
+
+    UserRepository userRepository = Mockito.mock(UserRepository.class);
+    Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(user);
+    Mockito.when(userRepository.findByToken(knownToken)).thenReturn(user);
+    Mockito.when(userRepository.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    userService = new UserService(userRepository, new UserTokenCache(10000, Duration.ofMinutes(10)),
+        new PresenceRegistry(Duration.ofMinutes(5)), Mockito.mock(UserWriteBehind.class), passwordHasher,
+        new UserMetrics(new SimpleMeterRegistry()), new UserRevision(), Mockito.mock(UserEventBroadcaster.class),
+        Mockito.mock(UsernameFilter.class, invocation -> true));
+
+    credentials = new UsernamePasswordDTO();
+    credentials.setUsername("testUsername");
+    credentials.setPassword("testPassword");
+  }
+
+  @TearDown
+  public void tearDown() {
+    passwordHasher.shutdown();
+  }
+
+  @Benchmark
+  public User checkLoginCorrect() {
+    return userService.checkLoginCorrect(credentials).join();
+  }
+
+  @Benchmark
+  public User createUser() {
+    UsernamePasswordDTO newUser = new UsernamePasswordDTO();
+    newUser.setUsername("newUsername");
+    newUser.setPassword("newPassword");
+    return userService.createUser(newUser, "hash");
+  }
+
+  @Benchmark
+  public User fetchUserFromTokenCached() {
+    return userService.fetchUserFromToken(knownToken);
+  }
+
+  @Benchmark
+  public User fetchUserFromTokenUnknown() {
+    return userService.fetchUserFromToken(unknownToken);
+  }
+}
@@ -0,0 +1,55 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserEventDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * DTO Codecs
+ * Pre-built ObjectWriters and ObjectReaders of the application ObjectMapper,
+ * one per DTO type. A writer for a fixed type resolves its root serializer
+ * once instead of on every value, which matters where DTOs are written one
+ * by one (streamed GET /users, NDJSON). The writers do not flush after each
+ * value, the generator's buffer is flushed when it is closed.
+ */
+@Component
+public class DtoCodecs {
+
+  private final ObjectMapper objectMapper;
+
+  private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  public DtoCodecs(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    // built up front so the first requests do not pay for the serializers
+    writerFor(UserClientVersionDTO.class);
+    writerFor(UserToDisplayClientVersionDTO.class);
+    writerFor(UserEventDTO.class);
+    readerFor(UsernamePasswordDTO.class);
+  }
+
+  public ObjectWriter writerFor(Class<?> type) {
+    return writers.computeIfAbsent(type,
+        key -> objectMapper.writerFor(key).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+  }
+
+  public ObjectReader readerFor(Class<?> type) {
+    return readers.computeIfAbsent(type, objectMapper::readerFor);
+  }
+
+  public ObjectMapper getObjectMapper() {
+    return objectMapper;
+  }
+}
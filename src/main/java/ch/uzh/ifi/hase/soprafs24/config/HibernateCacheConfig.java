@@ -0,0 +1,77 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.configuration.Factory;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.EternalExpiryPolicy;
+import javax.cache.expiry.ExpiryPolicy;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate Cache Configuration
+ * Creates the JCache (Caffeine) regions of the Hibernate second-level cache
+ * and hands the CacheManager to Hibernate. Sizes and time-to-live of the
+ * regions are set with the user.cache.* properties. Hit and miss counts of
+ * every region are part of the Hibernate statistics and are exported as
+ * hibernate.second.level.cache.*, hibernate.cache.natural.id.* and
+ * hibernate.cache.query.* metrics.
+ * Writes through Hibernate update or evict the cached entries; writes that
+ * bypass Hibernate (the R2DBC repository) do not, so the reactive profile
+ * turns the cache off.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+  public static final String USER_REGION = "user";
+  public static final String USER_NATURAL_ID_REGION = "user-natural-id";
+  public static final String USER_QUERY_REGION = "user-query";
+
+  // created by Hibernate when the query cache is enabled
+  private static final String DEFAULT_QUERY_RESULTS_REGION = "default-query-results-region";
+  private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      @Value("${user.cache.entity.maximum-size:10000}") long entityMaximumSize,
+      @Value("${user.cache.entity.time-to-live:10m}") Duration entityTimeToLive,
+      @Value("${user.cache.query.maximum-size:1000}") long queryMaximumSize,
+      @Value("${user.cache.query.time-to-live:1m}") Duration queryTimeToLive) {
+    // an own provider instance, so every application context gets its own regions
+    CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+
+    cacheManager.createCache(USER_REGION, region(entityMaximumSize, timeToLive(entityTimeToLive)));
+    cacheManager.createCache(USER_NATURAL_ID_REGION, region(entityMaximumSize, timeToLive(entityTimeToLive)));
+    cacheManager.createCache(USER_QUERY_REGION, region(queryMaximumSize, timeToLive(queryTimeToLive)));
+    cacheManager.createCache(DEFAULT_QUERY_RESULTS_REGION, region(queryMaximumSize, timeToLive(queryTimeToLive)));
+    // one entry per table, must outlive every cached query result
+    cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, region(1000, EternalExpiryPolicy.factoryOf()));
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+
+  private static Factory<ExpiryPolicy> timeToLive(Duration timeToLive) {
+    return CreatedExpiryPolicy.factoryOf(new javax.cache.expiry.Duration(TimeUnit.MILLISECONDS, timeToLive.toMillis()));
+  }
+
+  private static CaffeineConfiguration<Object, Object> region(long maximumSize, Factory<ExpiryPolicy> expiry) {
+    CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setMaximumSize(OptionalLong.of(maximumSize));
+    configuration.setExpiryPolicyFactory(expiry);
+    configuration.setStatisticsEnabled(true);
+    return configuration;
+  }
+}
@@ -0,0 +1,31 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+
+/**
+ * Jackson Configuration
+ * Registers the Afterburner module on every mapper built from Boot's
+ * Jackson2ObjectMapperBuilder (JSON, CBOR and Smile), which replaces the
+ * reflective getter/setter calls of the bean (de)serializers with generated
+ * bytecode. Switched off with user.jackson.afterburner=false and always in
+ * a native image, where classes cannot be generated at runtime.
+ */
+@Configuration
+public class JacksonConfig {
+
+  @Bean
+  @ConditionalOnProperty(name = "user.jackson.afterburner", havingValue = "true", matchIfMissing = true)
+  public Jackson2ObjectMapperBuilderCustomizer afterburnerCustomizer() {
+    return builder -> {
+      if (!NativeDetector.inNativeImage()) {
+        // registered last so Boot's own module list stays untouched
+        builder.postConfigurer(mapper -> mapper.registerModule(new AfterburnerModule()));
+      }
+    };
+  }
+}
@@ -0,0 +1,52 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Message Converter Configuration
+ * Besides JSON, which stays the default, the REST endpoints answer in the
+ * binary Jackson formats CBOR (Accept: application/cbor) and Smile (Accept:
+ * application/x-jackson-smile) for service-to-service consumers, and lists
+ * as NDJSON (Accept: application/x-ndjson). The binary mappers are built
+ * from Boot's Jackson2ObjectMapperBuilder, so they share the spring.jackson.*
+ * settings of the JSON mapper. The bean converters take the places of
+ * Spring's default CBOR and Smile converters after JSON and the NDJSON
+ * converter is appended at the end, so clients that accept any type still
+ * get JSON.
+ */
+@Configuration
+@Profile("!reactive")
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+  private final DtoCodecs dtoCodecs;
+
+  public MessageConverterConfig(DtoCodecs dtoCodecs) {
+    this.dtoCodecs = dtoCodecs;
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new NdjsonHttpMessageConverter(dtoCodecs));
+  }
+}
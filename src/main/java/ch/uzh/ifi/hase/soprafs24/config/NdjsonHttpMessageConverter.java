@@ -0,0 +1,74 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Writes collections as newline-delimited JSON (application/x-ndjson), one
+ * element per line, for clients that ask for it with the Accept header.
+ * Reading NDJSON is left to the endpoints (POST /users/bulk parses it as a
+ * stream). Elements are written with the cached writer of their type.
+ */
+public class NdjsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Collection<?>> {
+
+  public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  private final DtoCodecs dtoCodecs;
+
+  public NdjsonHttpMessageConverter(DtoCodecs dtoCodecs) {
+    super(APPLICATION_NDJSON);
+    this.dtoCodecs = dtoCodecs;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Collection.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected void writeInternal(Collection<?> items, Type type, HttpOutputMessage outputMessage) throws IOException {
+    try (JsonGenerator generator = dtoCodecs.getObjectMapper().getFactory()
+        .createGenerator(StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+      // writeRaw('\n') is the only separator, Jackson must not add its " " before each value
+      generator.setRootValueSeparator(null);
+      for (Object item : items) {
+        if (item == null) {
+          generator.writeNull();
+        } else {
+          dtoCodecs.writerFor(item.getClass()).writeValue(generator, item);
+        }
+        generator.writeRaw('\n');
+      }
+    }
+  }
+
+  @Override
+  protected Collection<?> readInternal(Class<? extends Collection<?>> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("NDJSON request bodies are not supported here", inputMessage);
+  }
+
+  @Override
+  public Collection<?> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("NDJSON request bodies are not supported here", inputMessage);
+  }
+}
@@ -0,0 +1,53 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import org.slf4j.MDC;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request Logging Filter
+ * Puts a request id into the MDC for every request, so all log lines of a
+ * request can be correlated without formatting the id into the messages. The
+ * id is taken from the X-Request-Id header if the client (or a proxy) sends
+ * one and is echoed in the response. The controller adds the user id once it
+ * is known. Both are printed by the pattern in logback-spring.xml.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+  public static final String REQUEST_ID_HEADER = "X-Request-Id";
+  public static final String REQUEST_ID = "requestId";
+  public static final String USER_ID = "userId";
+
+  private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String requestId = request.getHeader(REQUEST_ID_HEADER);
+    if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+      // cheaper than a random UUID, the id only has to be unique in the logs
+      requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+    MDC.put(REQUEST_ID, requestId);
+    response.setHeader(REQUEST_ID_HEADER, requestId);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      MDC.remove(REQUEST_ID);
+      MDC.remove(USER_ID);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+
+/**
+ * Startup Configuration
+ * Active with the startup profile (application-startup.properties), which
+ * creates beans lazily to shorten cold starts. Beans with @Scheduled methods
+ * (presence and profile write-behind, SSE keep-alives) and MeterBinders are
+ * still created eagerly, otherwise nothing would be flushed and the metrics
+ * would be missing until the first request touched them.
+ * With user.startup.exit-on-ready=true the application exits as soon as it
+ * is started; the cdsArchive Gradle task uses this for its training run.
+ */
+@Configuration
+@Profile("startup")
+public class StartupConfig {
+
+  private final Logger log = LoggerFactory.getLogger(StartupConfig.class);
+
+  @Bean
+  public static LazyInitializationExcludeFilter backgroundWorkExcludeFilter() {
+    return (beanName, beanDefinition, beanType) -> beanType != null
+        && (MeterBinder.class.isAssignableFrom(beanType) || hasScheduledMethods(beanType));
+  }
+
+  @Bean
+  @ConditionalOnProperty("user.startup.exit-on-ready")
+  public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+    return event -> {
+      log.info("Started, exiting because user.startup.exit-on-ready is set");
+      System.exit(SpringApplication.exit(event.getApplicationContext()));
+    };
+  }
+
+  private static boolean hasScheduledMethods(Class<?> beanType) {
+    return Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(beanType))
+        .anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+  }
+}
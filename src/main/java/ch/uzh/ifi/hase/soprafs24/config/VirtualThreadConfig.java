@@ -0,0 +1,57 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual Thread Configuration
+ * Active with the virtual-threads profile (./gradlew bootRun -PvirtualThreads,
+ * which starts the application on a JDK 21). Tomcat then runs every request,
+ * and with it every UserService transaction, on its own virtual thread, and
+ * asynchronous MVC work (e.g. streamed responses) uses virtual threads too.
+ * The number of concurrent requests is no longer bounded by a thread pool, so
+ * the Hikari pool size (application-virtual-threads.properties) is what limits
+ * the concurrent database work.
+ * The executor is looked up reflectively because the code is still compiled
+ * for Java 17.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+  private final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+  private final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+    log.info("Serving requests on virtual threads");
+    return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+  }
+
+  @Bean(name = "applicationTaskExecutor")
+  public AsyncTaskExecutor applicationTaskExecutor() {
+    return new TaskExecutorAdapter(virtualThreadExecutor);
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("The virtual-threads profile needs Java 21 or newer, running on "
+          + System.getProperty("java.version"), e);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Could not create the virtual thread executor", e);
+    }
+  }
+}
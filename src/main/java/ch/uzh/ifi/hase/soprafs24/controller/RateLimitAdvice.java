@@ -0,0 +1,67 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.uzh.ifi.hase.soprafs24.exceptions.TooManyRequestsException;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+import ch.uzh.ifi.hase.soprafs24.service.RateLimiter;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Rate Limit Advice
+ * Applies the RateLimiter to the @RateLimited handler methods while their
+ * request body is resolved, i.e. before the controller and the UserService
+ * run. The client IP is checked before the body is parsed, the username of a
+ * UsernamePasswordDTO body right after. Behind a proxy the IP is taken from
+ * X-Forwarded-For (server.forward-headers-strategy=native).
+ */
+@ControllerAdvice
+@Profile("!reactive")
+public class RateLimitAdvice extends RequestBodyAdviceAdapter {
+
+  private final RateLimiter rateLimiter;
+
+  public RateLimitAdvice(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public boolean supports(MethodParameter methodParameter, Type targetType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return methodParameter.hasMethodAnnotation(RateLimited.class);
+  }
+
+  @Override
+  public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    String clientIp = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+        .getRequest().getRemoteAddr();
+    check(parameter, RateLimiter.PER_IP, clientIp);
+    return inputMessage;
+  }
+
+  @Override
+  public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+      Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+    if (body instanceof UsernamePasswordDTO) {
+      check(parameter, RateLimiter.PER_USERNAME, ((UsernamePasswordDTO) body).getUsername());
+    }
+    return body;
+  }
+
+  private void check(MethodParameter parameter, String keyType, String key) {
+    RateLimited rateLimited = parameter.getMethodAnnotation(RateLimited.class);
+    long waitNanos = rateLimiter.tryAcquire(rateLimited.value(), keyType, key);
+    if (waitNanos > 0) {
+      throw new TooManyRequestsException(waitNanos);
+    }
+  }
+}
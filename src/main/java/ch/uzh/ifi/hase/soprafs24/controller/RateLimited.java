@@ -0,0 +1,18 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method with a @RequestBody as rate limited. The value is
+ * the endpoint name of the limits user.rate-limit.<value>.per-ip and
+ * user.rate-limit.<value>.per-username (see RateLimiter).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+  String value();
+}
@@ -0,0 +1,98 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.TokenDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.mapper.DTOMapper;
+import ch.uzh.ifi.hase.soprafs24.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs24.service.ReactiveUserService;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive User Controller
+ * Serves the same endpoints as the UserController when the reactive profile is
+ * active, on WebFlux and the ReactiveUserService. GET /users is streamed, so
+ * Accept: application/x-ndjson returns one user per line.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveUserController {
+
+  private final ReactiveUserService reactiveUserService;
+
+  private final PresenceRegistry presenceRegistry;
+
+  ReactiveUserController(ReactiveUserService reactiveUserService, PresenceRegistry presenceRegistry) {
+    this.reactiveUserService = reactiveUserService;
+    this.presenceRegistry = presenceRegistry;
+  }
+
+  @GetMapping("/users")
+  @ResponseStatus(HttpStatus.OK)
+  public Flux<UserClientVersionDTO> getAllUsers() {
+    return reactiveUserService.getUsers().map(this::toUserClientVersionDTO);
+  }
+
+  @PostMapping("/users")
+  @ResponseStatus(HttpStatus.CREATED)
+  public Mono<UserClientVersionDTO> registrateUser(@RequestBody UsernamePasswordDTO userPostDTO) {
+    return reactiveUserService.createUser(userPostDTO).map(this::toUserClientVersionDTO);
+  }
+
+  @GetMapping(value = "/users/{id}")
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<UserToDisplayClientVersionDTO> returnUserToDisplay(@PathVariable long id) {
+    return reactiveUserService.findUserToDisplayById(id).map(user -> {
+      UserToDisplayClientVersionDTO userToDisplay = DTOMapper.INSTANCE.convertEntitytoUserToDisplayClientVersionDTO(user);
+      userToDisplay.setStatus(presenceRegistry.statusOf(user.getId()));
+      return userToDisplay;
+    });
+  }
+
+  @PostMapping("/usersLogin")
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<UserClientVersionDTO> loginUser(@RequestBody UsernamePasswordDTO userPostDTO) {
+    return reactiveUserService.checkLoginCorrect(userPostDTO).map(this::toUserClientVersionDTO);
+  }
+
+  @PostMapping("/fetchByToken")
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<UserClientVersionDTO> fetchByToken(
+      @RequestHeader(name = UserController.TOKEN_HEADER, required = false) String tokenHeader,
+      @RequestBody(required = false) TokenDTO tokenDTO) {
+    return reactiveUserService.fetchUserFromToken(UserController.tokenOf(tokenHeader, tokenDTO))
+        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "user with token was not found")))
+        .map(user -> {
+          presenceRegistry.heartbeat(user.getId());
+          return toUserClientVersionDTO(user);
+        });
+  }
+
+  @PostMapping("/setUserOffline")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public Mono<Void> turnUserByUsernameOffline(@RequestBody UsernameDTO usernameDTO) {
+    return reactiveUserService.setUserOffline(usernameDTO.getUsername());
+  }
+
+  @PutMapping(value = "/users/{id}")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public Mono<Void> saveUserNameBirthDate(@RequestBody UsernameBirthDateDTO inputUser, @PathVariable long id) {
+    return reactiveUserService.saveUserNameBirthDate(inputUser, id);
+  }
+
+  private UserClientVersionDTO toUserClientVersionDTO(User user) {
+    UserClientVersionDTO userClientVersion = DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(user);
+    userClientVersion.setStatus(presenceRegistry.statusOf(user.getId()));
+    return userClientVersion;
+  }
+}
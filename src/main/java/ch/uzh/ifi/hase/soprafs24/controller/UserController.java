@@ -1,21 +1,65 @@
 package ch.uzh.ifi.hase.soprafs24.controller;
 
-import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.config.DtoCodecs;
+import ch.uzh.ifi.hase.soprafs24.config.RequestLoggingFilter;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.exceptions.TooManyRequestsException;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.TokenDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserImportReportDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateReportDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameAvailabilityDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.DTOMapper;
+import ch.uzh.ifi.hase.soprafs24.service.PasswordHasher;
+import ch.uzh.ifi.hase.soprafs24.service.UserEventBroadcaster;
+import ch.uzh.ifi.hase.soprafs24.service.UserImportService;
+import ch.uzh.ifi.hase.soprafs24.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs24.service.RateLimiter;
+import ch.uzh.ifi.hase.soprafs24.service.Tokens;
+import ch.uzh.ifi.hase.soprafs24.service.UserRevision;
 import ch.uzh.ifi.hase.soprafs24.service.UserService;
+import ch.uzh.ifi.hase.soprafs24.service.UserStatusService;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * User Controller
@@ -25,109 +69,379 @@ import java.util.List;
  * UserService and finally return the result.
  */
 @RestController
+@Profile("!reactive")
 public class UserController {
-  private final Logger log = LoggerFactory.getLogger(UserService.class);
+  private final Logger log = LoggerFactory.getLogger(UserController.class);
+
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  static final String NDJSON_VALUE = "application/x-ndjson";
+  static final String TOKEN_HEADER = "X-User-Token";
+  static final int DEFAULT_PAGE_SIZE = 100;
+  static final int MAX_PAGE_SIZE = 1000;
+
+  // the formats GET /users and GET /users/{id} are written in, JSON wins for */*
+  private static final List<MediaType> USER_MEDIA_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+      MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"), MediaType.parseMediaType(NDJSON_VALUE));
 
   private final UserService userService;
 
-  UserController(UserService userService) {
+  private final PresenceRegistry presenceRegistry;
+
+  private final PasswordHasher passwordHasher;
+
+  private final UserRevision userRevision;
+
+  private final UserEventBroadcaster userEventBroadcaster;
+
+  private final UserImportService userImportService;
+
+  private final UserStatusService userStatusService;
+
+  private final DtoCodecs dtoCodecs;
+
+  // runs the inserts after hashing, the hasher threads are kept for bcrypt
+  private final Executor taskExecutor;
+
+  private final RateLimiter rateLimiter;
+
+  // checked while POST /users/bulk is read, the service checks the same limit
+  private final int maxImportUsers;
+
+  UserController(UserService userService, PresenceRegistry presenceRegistry, PasswordHasher passwordHasher,
+      UserRevision userRevision, UserEventBroadcaster userEventBroadcaster, UserImportService userImportService,
+      UserStatusService userStatusService, DtoCodecs dtoCodecs,
+      @Qualifier("applicationTaskExecutor") Executor taskExecutor, RateLimiter rateLimiter,
+      @Value("${user.bulk.max-users:100000}") int maxImportUsers) {
     this.userService = userService;
+    this.presenceRegistry = presenceRegistry;
+    this.passwordHasher = passwordHasher;
+    this.userRevision = userRevision;
+    this.userEventBroadcaster = userEventBroadcaster;
+    this.userImportService = userImportService;
+    this.userStatusService = userStatusService;
+    this.dtoCodecs = dtoCodecs;
+    this.taskExecutor = taskExecutor;
+    this.rateLimiter = rateLimiter;
+    this.maxImportUsers = maxImportUsers;
   }
 
+  /**
+   * Without parameters the full list is returned as before. With after and/or
+   * limit a single keyset page ordered by id is returned; if the page is full
+   * the X-Next-Cursor header carries the value to pass as after for the next
+   * page.
+   * ETag and Last-Modified are derived from the in-memory revisions; if the
+   * client's copy is current the answer is 304 without reading the database.
+   * The ETag is weak and names the negotiated format, since every format
+   * (and its gzipped variant) is a different body of the same revision.
+   */
   @GetMapping("/users")
-  @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public List<UserClientVersionDTO> getAllUsers() {
-    // fetch all users in the internal representation
-    List<User> users = userService.getUsers();
-    List<UserClientVersionDTO> userGetDTOs = new ArrayList<>(); 
+  public ResponseEntity<List<UserClientVersionDTO>> getAllUsers(@RequestParam(required = false) Long after,
+      @RequestParam(required = false) Integer limit, WebRequest request, HttpServletResponse response) {
+    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    if (request.checkNotModified(weakETag(usersVersion(), negotiatedType(request)), usersLastModified())) {
+      return null;
+    }
 
-    // convert each user to the API representation
-    for (User user : users) {
-      userGetDTOs.add(DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(user));
+    if (after == null && limit == null) {
+      // fetch all users in the internal representation
+      return ResponseEntity.ok(toUserClientVersionDTOs(userService.getUsers()));
     }
-    return userGetDTOs;
+
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<UserSummary> page = userService.getUsersAfter(after == null ? 0L : after, pageSize);
+
+    ResponseEntity.BodyBuilder pageResponse = ResponseEntity.ok();
+    if (page.size() == pageSize) {
+      pageResponse.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+    }
+    return pageResponse.body(toUserClientVersionDTOs(page));
+  }
+
+  /**
+   * Opt-in streaming variant of GET /users (?stream=json or ?stream=ndjson).
+   * Users are written to the response while they are read from the database,
+   * so memory use does not depend on the size of the table.
+   */
+  @GetMapping(value = "/users", params = "stream")
+  public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestParam("stream") String format,
+      WebRequest request) {
+    boolean ndjson = "ndjson".equalsIgnoreCase(format);
+    MediaType type = ndjson ? MediaType.parseMediaType(NDJSON_VALUE) : MediaType.APPLICATION_JSON;
+    if (request.checkNotModified(weakETag(usersVersion(), type), usersLastModified())) {
+      return null;
+    }
+
+    ObjectWriter writer = dtoCodecs.writerFor(UserClientVersionDTO.class);
+    StreamingResponseBody body = outputStream -> {
+      try (JsonGenerator generator = dtoCodecs.getObjectMapper().getFactory().createGenerator(outputStream)) {
+        // the lines are separated by '\n' alone, not by Jackson's default " " between root values
+        generator.setRootValueSeparator(null);
+        if (!ndjson) {
+          generator.writeStartArray();
+        }
+        userService.streamUsers(user -> {
+          try {
+            writer.writeValue(generator, toUserClientVersionDTO(user));
+            if (ndjson) {
+              generator.writeRaw('\n');
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        if (!ndjson) {
+          generator.writeEndArray();
+        }
+      }
+    };
+
+    return ResponseEntity.ok()
+        .contentType(type)
+        .body(body);
+  }
+
+  /**
+   * Server-sent events with the changes of users: a "user" event per changed
+   * user carrying its id and only the changed fields (status, username,
+   * birthDate), and a "resync" event if changes were dropped because the
+   * client fell behind, after which GET /users has to be read again.
+   */
+  @GetMapping(value = "/users/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamUserEvents() {
+    return userEventBroadcaster.subscribe();
   }
 
   @PostMapping("/users")
   @ResponseStatus(HttpStatus.CREATED)
   @ResponseBody
-  public UserClientVersionDTO registrateUser(@RequestBody UsernamePasswordDTO userPostDTO) {
-
-    // create user
-    log.info("Received Registration Request form client");
-    log.info(userPostDTO.getUsername());
-    log.info(userPostDTO.getPassword());
-    
-    
-    User createdUser = userService.createUser(userPostDTO);
-    log.info("Succesfully created new User to database");
-    // convert internal representation of user back to API
-    return DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(createdUser);
+  @RateLimited("registration")
+  public CompletableFuture<UserClientVersionDTO> registrateUser(@RequestBody UsernamePasswordDTO userPostDTO) {
+
+    // create user, the password is hashed off the request thread
+    log.debug("Received registration request");
+
+    // a taken username is rejected before any bcrypt work is spent on it
+    userService.checkIfUserExists(userPostDTO.getUsername());
+
+    return passwordHasher.hash(userPostDTO.getPassword()).thenApplyAsync(passwordHash -> {
+      User createdUser = userService.createUser(userPostDTO, passwordHash);
+      // convert internal representation of user back to API
+      return toUserClientVersionDTO(createdUser);
+    }, taskExecutor);
   }
 
-  @GetMapping(value = "/users/{id}")
+  /**
+   * Registers all users of a JSON array or an NDJSON stream of
+   * UsernamePasswordDTOs and reports the result of every entry (CREATED,
+   * CONFLICT, DUPLICATE within the request, INVALID) in input order.
+   * The body is read by hand, so the RateLimitAdvice does not see it; the
+   * client IP is charged here (user.rate-limit.import.per-ip) before it is
+   * read. Reading stops with 413 at the first entry over user.bulk.max-users,
+   * the rest of the body is not parsed. The import itself (mostly bcrypt)
+   * runs on the task executor, the request thread is released meanwhile.
+   */
+  @PostMapping(value = "/users/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE })
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public UserToDisplayClientVersionDTO returnUserToDisplay(@PathVariable  long id) {
-    // create user
-    log.info("Received User Request from client");
-    log.info(String.valueOf(id));
-    
-    User userFromId = userService.findUserToDisplayById(id);
-    log.info("User found: {}", userFromId.getUsername());
+  public CompletableFuture<UserImportReportDTO> importUsers(InputStream body, HttpServletRequest request)
+      throws IOException {
+    long waitNanos = rateLimiter.tryAcquire("import", RateLimiter.PER_IP, request.getRemoteAddr());
+    if (waitNanos > 0) {
+      throw new TooManyRequestsException(waitNanos);
+    }
+
+    List<UsernamePasswordDTO> users = new ArrayList<>();
+    // an array is unwrapped, NDJSON is read as a sequence of root values
+    try (MappingIterator<UsernamePasswordDTO> entries =
+        dtoCodecs.readerFor(UsernamePasswordDTO.class).readValues(body)) {
+      while (entries.hasNextValue()) {
+        if (users.size() == maxImportUsers) {
+          throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+              String.format("at most %d users can be imported at once", maxImportUsers));
+        }
+        users.add(entries.nextValue());
+      }
+    } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed user list");
+    }
+    return CompletableFuture.supplyAsync(() -> userImportService.importUsers(users), taskExecutor);
+  }
+
+  /**
+   * Live availability check for a username, mostly answered from the
+   * in-memory UsernameFilter.
+   */
+  @GetMapping("/users/available")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public UsernameAvailabilityDTO isUsernameAvailable(@RequestParam String username) {
+    UsernameAvailabilityDTO availability = new UsernameAvailabilityDTO();
+    availability.setUsername(username);
+    availability.setAvailable(!username.trim().isEmpty() && userService.isUsernameAvailable(username));
+    return availability;
+  }
+
+  @GetMapping(value = "/users/{id}")
+  @ResponseBody
+  public ResponseEntity<UserToDisplayClientVersionDTO> returnUserToDisplay(@PathVariable  long id, WebRequest request,
+      HttpServletResponse response) {
+    MDC.put(RequestLoggingFilter.USER_ID, String.valueOf(id));
+    log.debug("Received user request");
+    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    if (request.checkNotModified(weakETag(userVersion(id), negotiatedType(request)),
+        Math.max(userRevision.lastModifiedOf(id), presenceRegistry.lastStatusChange()))) {
+      return null;
+    }
+
+    UserProfile userFromId = userService.findUserToDisplayById(id);
     // convert internal representation of user back to API
-    return DTOMapper.INSTANCE.convertEntitytoUserToDisplayClientVersionDTO(userFromId);
+    UserToDisplayClientVersionDTO userToDisplay = DTOMapper.INSTANCE.convertUserProfileToUserToDisplayClientVersionDTO(userFromId);
+    userToDisplay.setStatus(presenceRegistry.statusOf(userFromId.getId()));
+    return ResponseEntity.ok(userToDisplay);
   }
 
   @PostMapping("/usersLogin")
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public UserClientVersionDTO loginUser(@RequestBody UsernamePasswordDTO userPostDTO) {
+  @RateLimited("login")
+  public CompletableFuture<UserClientVersionDTO> loginUser(@RequestBody UsernamePasswordDTO userPostDTO) {
     // convert API user to internal representation
     // User userInput = DTOMapper.INSTANCE.convertUserPostDTOtoEntity(userPostDTO);
 
-    log.info("Received Login Request form client");
-    User checkDatabaseUser = userService.checkLoginCorrect(userPostDTO);
-    checkDatabaseUser.setStatus(UserStatus.ONLINE);
+    log.debug("Received login request");
 
     // convert internal representation of user back to API
-    return DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(checkDatabaseUser);
+    return userService.checkLoginCorrect(userPostDTO).thenApply(this::toUserClientVersionDTO);
   }
 
+  /**
+   * The token is taken from the X-User-Token header or from the body, either
+   * {"token": "..."} or the bare JSON string of older clients.
+   */
   @PostMapping("/fetchByToken")
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public UserClientVersionDTO fetchByToken(@RequestBody String token) {
-    // convert API user to internal representation
-    // User userInput = DTOMapper.INSTANCE.convertUserPostDTOtoEntity(userPostDTO);
-    token = token.trim().replaceAll("^\"|\"$", "");
-    log.info("Received token from client: {}", token);
-    User userFromToken = userService.fetchUserFromToken(token);
-    log.info("User found: {}", userFromToken.getUsername());
-    log.info("User password: {}", userFromToken.getPassword());
+  public UserClientVersionDTO fetchByToken(@RequestHeader(name = TOKEN_HEADER, required = false) String tokenHeader,
+      @RequestBody(required = false) TokenDTO tokenDTO) {
+    User userFromToken = userService.fetchUserFromToken(tokenOf(tokenHeader, tokenDTO));
+    if (userFromToken == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user with token was not found");
+    }
+    MDC.put(RequestLoggingFilter.USER_ID, String.valueOf(userFromToken.getId()));
+    log.debug("Resolved token");
+    // every client session resolves its token, which doubles as presence heartbeat;
+    // it does not undo /setUserOffline, only a login does
+    presenceRegistry.heartbeat(userFromToken.getId());
 
-    UserClientVersionDTO x = DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(userFromToken);
-    log.info("Converted boy: {}", x);
-    return x;
+    return toUserClientVersionDTO(userFromToken);
   }
 
   @PostMapping("/setUserOffline")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   @ResponseBody
-  public void turnUserByUsernameOffline(@RequestBody String username) {
-    log.info(username);
-    userService.fetchUserFromUsername(username);
+  public void turnUserByUsernameOffline(@RequestBody UsernameDTO usernameDTO) {
+    log.debug("Received offline request");
+    userService.fetchUserFromUsername(usernameDTO.getUsername());
+  }
+
+  /**
+   * Sets the status of all given ids and usernames with set-based UPDATEs
+   * and reports the identifiers that do not belong to a user.
+   */
+  @PostMapping("/users/status")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public UserStatusUpdateReportDTO updateUserStatus(@RequestBody UserStatusUpdateDTO update) {
+    log.debug("Received status update for {} ids and {} usernames",
+        update.getIds() == null ? 0 : update.getIds().size(),
+        update.getUsernames() == null ? 0 : update.getUsernames().size());
+    return userStatusService.updateStatus(update);
   }
 
   @PutMapping(value = "/users/{id}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   @ResponseBody
   public void SaveUserNameBirthDate(@RequestBody UsernameBirthDateDTO inputUser, @PathVariable  long id) {
-    log.info("Saving input username: {}", inputUser.getInputUsername());
-    log.info("Saving input old username: {}", inputUser.getCurrentUsername());
-    log.info("Saving input BirthDate: {}", inputUser.getInputBirthDate());
-    
+    MDC.put(RequestLoggingFilter.USER_ID, String.valueOf(id));
+    log.debug("Received profile update");
+
     userService.saveUserNameBirthDate(inputUser, id);
   }
+
+  static UUID tokenOf(String tokenHeader, TokenDTO tokenDTO) {
+    UUID token = tokenHeader != null ? Tokens.parse(tokenHeader) : tokenDTO == null ? null : tokenDTO.getToken();
+    if (token == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "token missing or malformed");
+    }
+    return token;
+  }
+
+  /**
+   * The format the message converters will pick for the Accept header of the
+   * request, JSON if the header is missing, malformed or accepts anything.
+   */
+  static MediaType negotiatedType(WebRequest request) {
+    String accept = request.getHeader(HttpHeaders.ACCEPT);
+    if (accept == null || accept.isEmpty()) {
+      return MediaType.APPLICATION_JSON;
+    }
+    List<MediaType> acceptedTypes;
+    try {
+      acceptedTypes = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return MediaType.APPLICATION_JSON;
+    }
+    MediaType.sortBySpecificityAndQuality(acceptedTypes);
+    for (MediaType acceptedType : acceptedTypes) {
+      for (MediaType type : USER_MEDIA_TYPES) {
+        if (acceptedType.isCompatibleWith(type)) {
+          return type;
+        }
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  // weak: Tomcat does not gzip responses with a strong ETag (noCompressionStrongETag)
+  private static String weakETag(String version, MediaType type) {
+    return "W/\"" + version + "-" + type.getSubtype() + "\"";
+  }
+
+  // computed before the data is read: a change in between only makes the ETag older than the body
+  private String usersVersion() {
+    return userRevision.epoch() + "-" + userRevision.revision() + "-" + presenceRegistry.statusChangeCount();
+  }
+
+  private long usersLastModified() {
+    return Math.max(userRevision.lastModified(), presenceRegistry.lastStatusChange());
+  }
+
+  private String userVersion(long id) {
+    return userRevision.epoch() + "-" + userRevision.revisionOf(id) + "-" + presenceRegistry.statusOf(id);
+  }
+
+  private List<UserClientVersionDTO> toUserClientVersionDTOs(List<UserSummary> users) {
+    List<UserClientVersionDTO> userGetDTOs = new ArrayList<>(users.size());
+
+    // convert each user to the API representation
+    for (UserSummary user : users) {
+      userGetDTOs.add(toUserClientVersionDTO(user));
+    }
+    return userGetDTOs;
+  }
+
+  // the status column is only written behind, the registry holds the live status
+  private UserClientVersionDTO toUserClientVersionDTO(User user) {
+    UserClientVersionDTO userClientVersion = DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(user);
+    userClientVersion.setStatus(presenceRegistry.statusOf(user.getId()));
+    return userClientVersion;
+  }
+
+  private UserClientVersionDTO toUserClientVersionDTO(UserSummary user) {
+    UserClientVersionDTO userClientVersion = DTOMapper.INSTANCE.convertUserSummaryToUserClientVersionDTO(user);
+    userClientVersion.setStatus(presenceRegistry.statusOf(user.getId()));
+    return userClientVersion;
+  }
 }
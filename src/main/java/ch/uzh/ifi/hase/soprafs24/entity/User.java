@@ -1,10 +1,16 @@
 package ch.uzh.ifi.hase.soprafs24.entity;
 
+import ch.uzh.ifi.hase.soprafs24.config.HibernateCacheConfig;
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.sql.Date;
+import java.util.UUID;
 
 /**
  * Internal User Representation
@@ -13,29 +19,48 @@ import java.sql.Date;
  * Every variable will be mapped into a database field with the @Column
  * annotation
  * - nullable = false -> this cannot be left empty
- * - unique = true -> this value must be unqiue across the database -> composes
- * the primary key
+ * The schema itself is created by the Flyway migrations in
+ * src/main/resources/db/migration, Hibernate only validates it. The indexes
+ * declared here mirror the ones of the migrations; username and token are
+ * unique. The token is a native H2 UUID (16 bytes) rather than its
+ * 36-character text.
+ * Users are kept in the second-level cache (HibernateCacheConfig), the
+ * username is the (mutable) natural id so lookups by username are cached too.
+ * The status is only inserted through the entity; later changes are written
+ * by UserRepository.updateStatusByIdIn, which leaves the cache alone. The
+ * status of a cached user may therefore be outdated, the PresenceRegistry
+ * holds the current one.
  */
 @Entity
-@Table(name = "USER")
+@Table(name = "USER", indexes = {
+    @Index(name = "IDX_USER_USERNAME", columnList = "username", unique = true),
+    @Index(name = "IDX_USER_TOKEN", columnList = "token", unique = true)
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.USER_REGION)
+@NaturalIdCache(region = HibernateCacheConfig.USER_NATURAL_ID_REGION)
 public class User implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
+  // pooled sequence: ids are handed out in blocks of 50, so inserts can be batched
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_seq")
+  @SequenceGenerator(name = "user_id_seq", sequenceName = "USER_ID_SEQ", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false)
   private String password;
 
-  @Column(nullable = false, unique = true)
+  @NaturalId(mutable = true)
+  @Column(nullable = false)
   private String username;
 
-  @Column(nullable = false, unique = true)
-  private String token;
+  @Column(nullable = false, columnDefinition = "UUID")
+  private UUID token;
 
-  @Column(nullable = false)
+  // written by UserRepository.updateStatusByIdIn, a stale cached status must not be saved back
+  @Column(nullable = false, updatable = false)
   private UserStatus status;
 
   @Column(nullable = false)
@@ -68,11 +93,11 @@ public class User implements Serializable {
     this.username = username;
   }
 
-  public String getToken() {
+  public UUID getToken() {
     return token;
   }
 
-  public void setToken(String token) {
+  public void setToken(UUID token) {
     this.token = token;
   }
 
@@ -0,0 +1,31 @@
+package ch.uzh.ifi.hase.soprafs24.exceptions;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 429 answer with a Retry-After header (in whole seconds, rounded up).
+ */
+public class TooManyRequestsException extends ResponseStatusException {
+
+  private final long retryAfterSeconds;
+
+  public TooManyRequestsException(long waitNanos) {
+    super(HttpStatus.TOO_MANY_REQUESTS, "too many requests, try again later");
+    this.retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  @Override
+  public HttpHeaders getResponseHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    return headers;
+  }
+}
@@ -0,0 +1,120 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Reactive counterpart of the UserRepository for the reactive profile. It reads
+ * and writes the same USER table through R2DBC, so no thread is blocked while
+ * waiting for the database.
+ */
+@Repository("reactiveUserRepository")
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+  private static final String SELECT_USER =
+      "SELECT ID, PASSWORD, USERNAME, TOKEN, STATUS, CREATION_DATE, BIRTH_DATE FROM USER";
+
+  private final DatabaseClient databaseClient;
+
+  public ReactiveUserRepository(ConnectionFactory connectionFactory) {
+    this.databaseClient = DatabaseClient.create(connectionFactory);
+  }
+
+  public Flux<User> findAll() {
+    return databaseClient.sql(SELECT_USER + " ORDER BY ID")
+        .map((row, metadata) -> toUser(row))
+        .all();
+  }
+
+  public Mono<User> findById(long id) {
+    return databaseClient.sql(SELECT_USER + " WHERE ID = :id")
+        .bind("id", id)
+        .map((row, metadata) -> toUser(row))
+        .one();
+  }
+
+  public Mono<User> findByUsername(String username) {
+    return databaseClient.sql(SELECT_USER + " WHERE USERNAME = :username")
+        .bind("username", username)
+        .map((row, metadata) -> toUser(row))
+        .one();
+  }
+
+  public Mono<User> findByToken(UUID token) {
+    return databaseClient.sql(SELECT_USER + " WHERE TOKEN = :token")
+        .bind("token", token)
+        .map((row, metadata) -> toUser(row))
+        .one();
+  }
+
+  /**
+   * Inserts the user with the next value of USER_ID_SEQ as id. With the
+   * pooled-lo optimizer Hibernate only uses the values it fetched itself as
+   * block start, so ids taken here never collide with JPA inserts.
+   */
+  public Mono<User> insert(User user) {
+    return databaseClient.sql("SELECT NEXT VALUE FOR USER_ID_SEQ")
+        .map((row, metadata) -> row.get(0, Long.class))
+        .one()
+        .flatMap(id -> {
+          user.setId(id);
+          DatabaseClient.GenericExecuteSpec insert = databaseClient.sql(
+              "INSERT INTO USER (ID, PASSWORD, USERNAME, TOKEN, STATUS, CREATION_DATE, BIRTH_DATE) "
+                  + "VALUES (:id, :password, :username, :token, :status, :creationDate, :birthDate)")
+              .bind("id", id)
+              .bind("password", user.getPassword())
+              .bind("username", user.getUsername())
+              .bind("token", user.getToken())
+              .bind("status", user.getStatus().ordinal())
+              .bind("creationDate", user.getCreationDate().toLocalDate());
+          insert = user.getBirthDate() == null
+              ? insert.bindNull("birthDate", LocalDate.class)
+              : insert.bind("birthDate", user.getBirthDate().toLocalDate());
+          return insert.fetch().rowsUpdated().thenReturn(user);
+        });
+  }
+
+  /**
+   * Sets username and/or birth date; null values are left untouched.
+   */
+  public Mono<Integer> updateProfile(long id, String username, Date birthDate) {
+    DatabaseClient.GenericExecuteSpec update = databaseClient.sql(
+        "UPDATE USER SET USERNAME = COALESCE(:username, USERNAME), BIRTH_DATE = COALESCE(:birthDate, BIRTH_DATE) "
+            + "WHERE ID = :id")
+        .bind("id", id);
+    update = username == null ? update.bindNull("username", String.class) : update.bind("username", username);
+    update = birthDate == null
+        ? update.bindNull("birthDate", LocalDate.class)
+        : update.bind("birthDate", birthDate.toLocalDate());
+    return update.fetch().rowsUpdated();
+  }
+
+  private static User toUser(Row row) {
+    User user = new User();
+    user.setId(row.get("ID", Long.class));
+    user.setPassword(row.get("PASSWORD", String.class));
+    user.setUsername(row.get("USERNAME", String.class));
+    user.setToken(row.get("TOKEN", UUID.class));
+    user.setStatus(UserStatus.values()[row.get("STATUS", Integer.class)]);
+    user.setCreationDate(toDate(row.get("CREATION_DATE", LocalDate.class)));
+    user.setBirthDate(toDate(row.get("BIRTH_DATE", LocalDate.class)));
+    return user;
+  }
+
+  private static Date toDate(LocalDate localDate) {
+    return localDate == null ? null : Date.valueOf(localDate);
+  }
+}
@@ -0,0 +1,42 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Records a users.repository timer (tags: method, exception) around every
+ * call to the UserRepository. Percentiles and histogram buckets are configured
+ * in application.properties.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+  private final MeterRegistry meterRegistry;
+
+  public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("target(ch.uzh.ifi.hase.soprafs24.repository.UserRepository)")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = "none";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      exception = t.getClass().getSimpleName();
+      throw t;
+    } finally {
+      sample.stop(Timer.builder("users.repository")
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("exception", exception)
+          .register(meterRegistry));
+    }
+  }
+}
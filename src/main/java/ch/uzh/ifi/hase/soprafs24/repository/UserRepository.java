@@ -1,13 +1,68 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import ch.uzh.ifi.hase.soprafs24.config.HibernateCacheConfig;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 // fake databank
+// findById(long) and findByUsername are served from the second-level cache (UserRepositoryCustom)
+// status updates go through UserRepositoryCustom.updateStatusByIdIn, which keeps the cache
 @Repository("userRepository")
-public interface UserRepository extends JpaRepository<User, Long> {
-  User findByUsername(String username);
-  User findByToken(String token);
-  User findById(long id);
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+  // token is not the natural id, its lookups are cached as query results
+  @QueryHints({
+      @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = HibernateCacheConfig.USER_QUERY_REGION)
+  })
+  User findByToken(UUID token);
+
+  // projections for the read endpoints: only the DTO columns, results are not managed
+  @Query("select new ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary(u.id, u.username, u.token)"
+      + " from User u")
+  List<UserSummary> findAllSummaries();
+
+  // keyset page: only rows after the cursor are read, independent of the page number
+  @Query("select new ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary(u.id, u.username, u.token)"
+      + " from User u where u.id > :after order by u.id")
+  List<UserSummary> findSummariesAfter(@Param("after") long after, Pageable pageable);
+
+  // must be consumed inside a transaction and closed afterwards
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+  @Query("select new ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary(u.id, u.username, u.token)"
+      + " from User u order by u.id")
+  Stream<UserSummary> streamSummaries();
+
+  @Query("select new ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile(u.id, u.username,"
+      + " u.creationDate, u.birthDate) from User u where u.id = :id")
+  UserProfile findProfileById(@Param("id") long id);
+
+  // fills the UsernameFilter at startup, must be consumed inside a transaction and closed afterwards
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query("select u.username from User u")
+  Stream<String> streamUsernames();
+
+  // set-based uniqueness check of a bulk import
+  @Query("select u.username from User u where u.username in :usernames")
+  List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+  // set-based lookups of a bulk status update
+  @Query("select u.id from User u where u.id in :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  @Query("select new ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary(u.id, u.username, u.token)"
+      + " from User u where u.username in :usernames")
+  List<UserSummary> findSummariesByUsernameIn(@Param("usernames") Collection<String> usernames);
 }
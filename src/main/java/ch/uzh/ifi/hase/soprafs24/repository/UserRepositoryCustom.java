@@ -0,0 +1,34 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+
+import java.util.Collection;
+
+/**
+ * Lookups of the UserRepository that go through the Hibernate second-level
+ * cache instead of running a query: by id through the entity region, by
+ * username through the natural-id region. Status writes that leave the
+ * cache alone.
+ */
+public interface UserRepositoryCustom {
+
+  /**
+   * @return the user or null if there is none with this id
+   */
+  User findById(long id);
+
+  /**
+   * @return the user or null if there is none with this username
+   */
+  User findByUsername(String username);
+
+  /**
+   * Sets the status column of the given users without evicting the cached
+   * users or USER queries. The status of a cached User is therefore not
+   * authoritative, the PresenceRegistry is.
+   *
+   * @return the number of updated rows
+   */
+  int updateStatusByIdIn(UserStatus status, Collection<Long> ids);
+}
@@ -0,0 +1,46 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+
+@Transactional(readOnly = true)
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  // no entity or cached query depends on this space, see updateStatusByIdIn
+  private static final String STATUS_QUERY_SPACE = "USER_STATUS";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public User findById(long id) {
+    return entityManager.find(User.class, id);
+  }
+
+  @Override
+  public User findByUsername(String username) {
+    return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(username);
+  }
+
+  // A JPQL bulk update (or a native one without query spaces) evicts the whole
+  // user and user-natural-id regions and every cached USER query; the status
+  // column is not updatable through the entity, so the cached users stay valid
+  // apart from their status.
+  @Override
+  @Transactional
+  public int updateStatusByIdIn(UserStatus status, Collection<Long> ids) {
+    NativeQuery<?> query = entityManager.createNativeQuery("update USER set STATUS = :status where ID in (:ids)")
+        .unwrap(NativeQuery.class);
+    return query.addSynchronizedQuerySpace(STATUS_QUERY_SPACE)
+        .setParameter("status", status.ordinal())
+        .setParameterList("ids", ids)
+        .executeUpdate();
+  }
+}
@@ -0,0 +1,40 @@
+package ch.uzh.ifi.hase.soprafs24.repository.projection;
+
+import java.sql.Date;
+
+/**
+ * UserProfile
+ * Read-only projection with the columns of a UserToDisplayClientVersionDTO,
+ * as used by GET /users/{id}. Like UserSummary it is not managed and carries
+ * neither password nor token.
+ */
+public final class UserProfile {
+
+  private final Long id;
+  private final String username;
+  private final Date creationDate;
+  private final Date birthDate;
+
+  public UserProfile(Long id, String username, Date creationDate, Date birthDate) {
+    this.id = id;
+    this.username = username;
+    this.creationDate = creationDate;
+    this.birthDate = birthDate;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Date getCreationDate() {
+    return creationDate;
+  }
+
+  public Date getBirthDate() {
+    return birthDate;
+  }
+}
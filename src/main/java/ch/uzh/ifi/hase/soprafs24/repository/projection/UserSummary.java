@@ -0,0 +1,35 @@
+package ch.uzh.ifi.hase.soprafs24.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * UserSummary
+ * Read-only projection with the columns of a UserClientVersionDTO, as used by
+ * GET /users. Built by a JPQL constructor expression, so neither the password
+ * is read nor is the result tracked by the persistence context. The status is
+ * not selected because the controller takes it from the PresenceRegistry.
+ */
+public final class UserSummary {
+
+  private final Long id;
+  private final String username;
+  private final UUID token;
+
+  public UserSummary(Long id, String username, UUID token) {
+    this.id = id;
+    this.username = username;
+    this.token = token;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public UUID getToken() {
+    return token;
+  }
+}
@@ -0,0 +1,72 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import ch.uzh.ifi.hase.soprafs24.service.Tokens;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Body of POST /fetchByToken: {"token": "..."}, or the token as a bare JSON
+ * string as sent by older clients. The token is parsed straight from the
+ * parser's text buffer; anything that is not a token is rejected (400).
+ */
+@JsonDeserialize(using = TokenDTO.Deserializer.class)
+public class TokenDTO {
+
+  private UUID token;
+
+  public UUID getToken() {
+    return token;
+  }
+
+  public void setToken(UUID token) {
+    this.token = token;
+  }
+
+  static class Deserializer extends StdDeserializer<TokenDTO> {
+
+    private static final long serialVersionUID = 1L;
+
+    Deserializer() {
+      super(TokenDTO.class);
+    }
+
+    @Override
+    public TokenDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      TokenDTO dto = new TokenDTO();
+      if (p.hasToken(JsonToken.VALUE_STRING)) {
+        dto.setToken(readToken(p, ctxt));
+        return dto;
+      }
+      if (!p.isExpectedStartObjectToken()) {
+        return (TokenDTO) ctxt.handleUnexpectedToken(TokenDTO.class, p);
+      }
+      for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+        JsonToken value = p.nextToken();
+        if ("token".equals(field) && value == JsonToken.VALUE_STRING) {
+          dto.setToken(readToken(p, ctxt));
+        } else {
+          p.skipChildren();
+        }
+      }
+      if (dto.getToken() == null) {
+        return (TokenDTO) ctxt.handleUnexpectedToken(TokenDTO.class, JsonToken.VALUE_STRING, p, "token missing");
+      }
+      return dto;
+    }
+
+    private static UUID readToken(JsonParser p, DeserializationContext ctxt) throws IOException {
+      UUID token = Tokens.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+      if (token == null) {
+        return (UUID) ctxt.handleWeirdStringValue(UUID.class, p.getText(), "not a token");
+      }
+      return token;
+    }
+  }
+}
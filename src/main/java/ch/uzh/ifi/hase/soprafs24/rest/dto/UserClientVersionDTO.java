@@ -2,12 +2,14 @@ package ch.uzh.ifi.hase.soprafs24.rest.dto;
 
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 
+import java.util.UUID;
+
 public class UserClientVersionDTO {
 
   private Long id;
   private String username;
   private UserStatus status;
-  private String token;
+  private UUID token;
 
   public Long getId() {
     return id;
@@ -32,10 +34,10 @@ public class UserClientVersionDTO {
   public void setStatus(UserStatus status) {
     this.status = status;
   }
-  public String getToken() {
+  public UUID getToken() {
     return token;
   }
 
-  public void setToken(String token) {
+  public void setToken(UUID token) {
     this.token = token;}
 }
@@ -0,0 +1,78 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * Delta of a single user sent by GET /users/events. Only the fields that
+ * changed are set, the others are left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserEventDTO {
+
+  private Long id;
+  private String username;
+  private LocalDate birthDate;
+  private UserStatus status;
+
+  public static UserEventDTO status(Long id, UserStatus status) {
+    UserEventDTO event = new UserEventDTO();
+    event.setId(id);
+    event.setStatus(status);
+    return event;
+  }
+
+  public static UserEventDTO profile(Long id, String username, LocalDate birthDate) {
+    UserEventDTO event = new UserEventDTO();
+    event.setId(id);
+    event.setUsername(username);
+    event.setBirthDate(birthDate);
+    return event;
+  }
+
+  /**
+   * @return a new event with the fields of both, the newer values win
+   */
+  public UserEventDTO mergedWith(UserEventDTO newer) {
+    UserEventDTO merged = new UserEventDTO();
+    merged.setId(id);
+    merged.setUsername(newer.username != null ? newer.username : username);
+    merged.setBirthDate(newer.birthDate != null ? newer.birthDate : birthDate);
+    merged.setStatus(newer.status != null ? newer.status : status);
+    return merged;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public LocalDate getBirthDate() {
+    return birthDate;
+  }
+
+  public void setBirthDate(LocalDate birthDate) {
+    this.birthDate = birthDate;
+  }
+
+  public UserStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(UserStatus status) {
+    this.status = status;
+  }
+}
@@ -0,0 +1,34 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import java.util.List;
+
+public class UserImportReportDTO {
+
+  private int created;
+  private int failed;
+  private List<UserImportResultDTO> results;
+
+  public int getCreated() {
+    return created;
+  }
+
+  public void setCreated(int created) {
+    this.created = created;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public void setFailed(int failed) {
+    this.failed = failed;
+  }
+
+  public List<UserImportResultDTO> getResults() {
+    return results;
+  }
+
+  public void setResults(List<UserImportResultDTO> results) {
+    this.results = results;
+  }
+}
@@ -0,0 +1,36 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+
+import java.util.List;
+
+public class UserStatusUpdateDTO {
+
+  private UserStatus status;
+  private List<Long> ids;
+  private List<String> usernames;
+
+  public UserStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(UserStatus status) {
+    this.status = status;
+  }
+
+  public List<Long> getIds() {
+    return ids;
+  }
+
+  public void setIds(List<Long> ids) {
+    this.ids = ids;
+  }
+
+  public List<String> getUsernames() {
+    return usernames;
+  }
+
+  public void setUsernames(List<String> usernames) {
+    this.usernames = usernames;
+  }
+}
@@ -0,0 +1,34 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import java.util.List;
+
+public class UserStatusUpdateReportDTO {
+
+  private int updated;
+  private List<Long> unknownIds;
+  private List<String> unknownUsernames;
+
+  public int getUpdated() {
+    return updated;
+  }
+
+  public void setUpdated(int updated) {
+    this.updated = updated;
+  }
+
+  public List<Long> getUnknownIds() {
+    return unknownIds;
+  }
+
+  public void setUnknownIds(List<Long> unknownIds) {
+    this.unknownIds = unknownIds;
+  }
+
+  public List<String> getUnknownUsernames() {
+    return unknownUsernames;
+  }
+
+  public void setUnknownUsernames(List<String> unknownUsernames) {
+    this.unknownUsernames = unknownUsernames;
+  }
+}
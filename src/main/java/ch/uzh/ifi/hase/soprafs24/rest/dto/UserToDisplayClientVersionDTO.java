@@ -1,6 +1,6 @@
 package ch.uzh.ifi.hase.soprafs24.rest.dto;
 
-import java.sql.Date;
+import java.time.LocalDate;
 
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 
@@ -9,8 +9,8 @@ public class UserToDisplayClientVersionDTO {
   private Long id;
   private String username;
   private UserStatus status;
-  private Date birthDate;
-  private Date creationDate;
+  private LocalDate birthDate;
+  private LocalDate creationDate;
 
   public Long getId() {
     return id;
@@ -36,18 +36,18 @@ public class UserToDisplayClientVersionDTO {
     this.status = status;
   }
 
-  public Date getBirthDate() {
+  public LocalDate getBirthDate() {
     return birthDate;
   }
 
-  public void setBirthDate(Date birthDate) {
+  public void setBirthDate(LocalDate birthDate) {
     this.birthDate = birthDate;
   }
 
-  public Date getCreationDate() {
+  public LocalDate getCreationDate() {
     return creationDate;
   }
 
-  public void setCreationDate(Date creationDate) {
+  public void setCreationDate(LocalDate creationDate) {
     this.creationDate = creationDate;}
 }
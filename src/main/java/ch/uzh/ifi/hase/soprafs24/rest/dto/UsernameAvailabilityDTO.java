@@ -0,0 +1,23 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+public class UsernameAvailabilityDTO {
+
+  private String username;
+  private boolean available;
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public boolean isAvailable() {
+    return available;
+  }
+
+  public void setAvailable(boolean available) {
+    this.available = available;
+  }
+}
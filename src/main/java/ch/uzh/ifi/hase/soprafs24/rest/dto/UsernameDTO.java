@@ -0,0 +1,61 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Body of POST /setUserOffline: {"username": "..."}, or the username as a
+ * bare JSON string as sent by older clients.
+ */
+@JsonDeserialize(using = UsernameDTO.Deserializer.class)
+public class UsernameDTO {
+
+  private String username;
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  static class Deserializer extends StdDeserializer<UsernameDTO> {
+
+    private static final long serialVersionUID = 1L;
+
+    Deserializer() {
+      super(UsernameDTO.class);
+    }
+
+    @Override
+    public UsernameDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      UsernameDTO dto = new UsernameDTO();
+      if (p.hasToken(JsonToken.VALUE_STRING)) {
+        dto.setUsername(p.getText());
+        return dto;
+      }
+      if (!p.isExpectedStartObjectToken()) {
+        return (UsernameDTO) ctxt.handleUnexpectedToken(UsernameDTO.class, p);
+      }
+      for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+        JsonToken value = p.nextToken();
+        if ("username".equals(field) && value == JsonToken.VALUE_STRING) {
+          dto.setUsername(p.getText());
+        } else {
+          p.skipChildren();
+        }
+      }
+      if (dto.getUsername() == null) {
+        return (UsernameDTO) ctxt.handleUnexpectedToken(UsernameDTO.class, JsonToken.VALUE_STRING, p,
+            "username missing");
+      }
+      return dto;
+    }
+  }
+}
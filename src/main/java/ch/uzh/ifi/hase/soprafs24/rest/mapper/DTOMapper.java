@@ -1,12 +1,17 @@
 package ch.uzh.ifi.hase.soprafs24.rest.mapper;
 
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
 
+import java.sql.Date;
+import java.time.LocalDate;
+
 /**
  * DTOMapper
  * This class is responsible for generating classes that will automatically
@@ -39,4 +44,23 @@ public interface DTOMapper {
   @Mapping(source = "creationDate", target = "creationDate")
   @Mapping(source = "birthDate", target = "birthDate")
   UserToDisplayClientVersionDTO convertEntitytoUserToDisplayClientVersionDTO(User user);
+
+  // the status of the projections is set from the PresenceRegistry
+  @Mapping(source = "id", target = "id")
+  @Mapping(source = "username", target = "username")
+  @Mapping(source = "token", target = "token")
+  @Mapping(target = "status", ignore = true)
+  UserClientVersionDTO convertUserSummaryToUserClientVersionDTO(UserSummary userSummary);
+
+  @Mapping(source = "id", target = "id")
+  @Mapping(source = "username", target = "username")
+  @Mapping(source = "creationDate", target = "creationDate")
+  @Mapping(source = "birthDate", target = "birthDate")
+  @Mapping(target = "status", ignore = true)
+  UserToDisplayClientVersionDTO convertUserProfileToUserToDisplayClientVersionDTO(UserProfile userProfile);
+
+  // the entity keeps java.sql.Date for its columns, the API uses java.time
+  default LocalDate toLocalDate(Date date) {
+    return date == null ? null : date.toLocalDate();
+  }
 }
@@ -0,0 +1,170 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Password Hasher
+ * Hashes and verifies passwords with bcrypt on a dedicated pool that has one
+ * thread per core (user.password.hash-threads) and a bounded queue
+ * (user.password.hash-queue-capacity). The CPU heavy work therefore never runs
+ * on the Tomcat worker threads, and when the queue is full a request is
+ * rejected right away with 503 instead of piling up.
+ * The cost is set with user.password.bcrypt-strength. Stored hashes with a
+ * different cost, and plaintext passwords stored before hashing was
+ * introduced, are reported by needsRehash().
+ */
+@Component
+public class PasswordHasher implements MeterBinder {
+
+  private final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+  private final int strength;
+
+  private final BCryptPasswordEncoder encoder;
+
+  private final ThreadPoolExecutor executor;
+
+  // hashes of a bulk import in flight at a time, leaves threads for logins
+  private final int bulkParallelism;
+
+  public PasswordHasher(@Value("${user.password.bcrypt-strength:10}") int strength,
+      @Value("${user.password.hash-threads:0}") int threads,
+      @Value("${user.password.hash-queue-capacity:64}") int queueCapacity) {
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadNumber = new AtomicInteger();
+
+    this.strength = strength;
+    this.encoder = new BCryptPasswordEncoder(strength);
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    this.bulkParallelism = Math.max(1, poolSize / 2);
+  }
+
+  public CompletableFuture<String> hash(String rawPassword) {
+    return submit(() -> encoder.encode(rawPassword));
+  }
+
+  /**
+   * Hashes the passwords of a bulk import, in the order given, and blocks
+   * until all are done. At most half of the hasher threads are used, and the
+   * caller waits for a free slot instead of being rejected when the queue is
+   * full, so concurrent logins and registrations are still served.
+   */
+  public List<String> hashAll(List<String> rawPasswords) throws InterruptedException {
+    Semaphore slots = new Semaphore(bulkParallelism);
+    List<CompletableFuture<String>> hashes = new ArrayList<>(rawPasswords.size());
+    for (String rawPassword : rawPasswords) {
+      slots.acquire();
+      CompletableFuture<String> hash = submitWhenAccepted(() -> encoder.encode(rawPassword));
+      hash.whenComplete((result, e) -> slots.release());
+      hashes.add(hash);
+    }
+
+    List<String> results = new ArrayList<>(hashes.size());
+    for (CompletableFuture<String> hash : hashes) {
+      results.add(hash.join());
+    }
+    return results;
+  }
+
+  public CompletableFuture<Boolean> matches(String rawPassword, String storedPassword) {
+    if (!isBcrypt(storedPassword)) {
+      // stored before hashing was introduced, cheap enough for the caller thread
+      return CompletableFuture.completedFuture(plaintextMatches(rawPassword, storedPassword));
+    }
+    return submit(() -> encoder.matches(rawPassword, storedPassword));
+  }
+
+  /**
+   * True if the stored password is not a bcrypt hash of the configured cost.
+   */
+  public boolean needsRehash(String storedPassword) {
+    return !isBcrypt(storedPassword) || costOf(storedPassword) != strength;
+  }
+
+  public int getStrength() {
+    return strength;
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("users.password.hash.queue", executor, e -> e.getQueue().size())
+        .description("Password hashes waiting for a hasher thread").register(registry);
+    Gauge.builder("users.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Password hashes being computed").register(registry);
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> task) {
+    try {
+      return CompletableFuture.supplyAsync(task, executor);
+    } catch (RejectedExecutionException e) {
+      log.warn("Password hashing queue is full, rejecting request");
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The server is busy, please try again later");
+    }
+  }
+
+  private <T> CompletableFuture<T> submitWhenAccepted(Supplier<T> task) throws InterruptedException {
+    while (true) {
+      try {
+        return CompletableFuture.supplyAsync(task, executor);
+      } catch (RejectedExecutionException e) {
+        // the queue is full of interactive requests, they go first
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+    }
+  }
+
+  // bcrypt hashes look like $2a$10$<53 characters>
+  private static boolean isBcrypt(String storedPassword) {
+    return storedPassword != null && storedPassword.length() == 60 && storedPassword.startsWith("$2")
+        && storedPassword.charAt(3) == '$' && storedPassword.charAt(6) == '$';
+  }
+
+  private static int costOf(String bcryptHash) {
+    return Integer.parseInt(bcryptHash.substring(4, 6));
+  }
+
+  private static boolean plaintextMatches(String rawPassword, String storedPassword) {
+    if (rawPassword == null || storedPassword == null) {
+      return false;
+    }
+    return MessageDigest.isEqual(rawPassword.trim().getBytes(StandardCharsets.UTF_8),
+        storedPassword.trim().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
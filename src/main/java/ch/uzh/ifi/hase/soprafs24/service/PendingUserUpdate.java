@@ -0,0 +1,66 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+
+import java.sql.Date;
+
+/**
+ * Pending User Update
+ * The changes to a single user that are waiting to be written. Fields that are
+ * null are left untouched. Two pending updates of the same user are merged
+ * into one, the newer values win.
+ */
+public final class PendingUserUpdate {
+
+  private final String username;
+  private final Date birthDate;
+  private final String password;
+
+  private PendingUserUpdate(String username, Date birthDate, String password) {
+    this.username = username;
+    this.birthDate = birthDate;
+    this.password = password;
+  }
+
+  public static PendingUserUpdate profile(String username, Date birthDate) {
+    return new PendingUserUpdate(username, birthDate, null);
+  }
+
+  public static PendingUserUpdate password(String passwordHash) {
+    return new PendingUserUpdate(null, null, passwordHash);
+  }
+
+  public PendingUserUpdate mergedWith(PendingUserUpdate newer) {
+    return new PendingUserUpdate(
+        newer.username != null ? newer.username : username,
+        newer.birthDate != null ? newer.birthDate : birthDate,
+        newer.password != null ? newer.password : password);
+  }
+
+  public void applyTo(User user) {
+    if (username != null) {
+      user.setUsername(username);
+    }
+    if (birthDate != null) {
+      user.setBirthDate(birthDate);
+    }
+    if (password != null) {
+      user.setPassword(password);
+    }
+  }
+
+  /**
+   * @return true if username or birth date change, false for password-only updates
+   */
+  public boolean changesProfile() {
+    return username != null || birthDate != null;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Date getBirthDate() {
+    return birthDate;
+  }
+}
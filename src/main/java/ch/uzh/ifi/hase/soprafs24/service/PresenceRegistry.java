@@ -0,0 +1,223 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Presence Registry
+ * This class is the source of truth for the ONLINE/OFFLINE status of the users
+ * while the server is running. Status changes only touch memory; the ids of
+ * changed users are remembered so that PresenceWriteBehind can write them to
+ * the USER table in batches.
+ * A user is ONLINE after login, registration or a heartbeat and falls back to
+ * OFFLINE when no heartbeat arrived within the heartbeat timeout. Users that
+ * have not been seen since the server started are OFFLINE. A user that was
+ * set OFFLINE on purpose (markOffline, a bulk OFFLINE update) stays OFFLINE
+ * until the next login or registration; heartbeats do not bring it back.
+ * Visible status changes are counted, the count is part of the ETags of the
+ * user endpoints, and passed to the status listeners (UserEventBroadcaster).
+ */
+@Component
+public class PresenceRegistry {
+
+  private final ConcurrentHashMap<Long, Presence> presences = new ConcurrentHashMap<>();
+
+  private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+  private final long heartbeatTimeoutMillis;
+
+  private final Clock clock;
+
+  private final AtomicLong statusChanges = new AtomicLong();
+
+  private final AtomicLong lastStatusChange;
+
+  private final List<BiConsumer<Long, UserStatus>> statusListeners = new CopyOnWriteArrayList<>();
+
+  @Autowired
+  public PresenceRegistry(@Value("${user.presence.heartbeat-timeout:5m}") Duration heartbeatTimeout) {
+    this(heartbeatTimeout, Clock.systemUTC());
+  }
+
+  PresenceRegistry(Duration heartbeatTimeout, Clock clock) {
+    this.heartbeatTimeoutMillis = heartbeatTimeout.toMillis();
+    this.clock = clock;
+    this.lastStatusChange = new AtomicLong(clock.millis());
+  }
+
+  public void markOnline(Long userId) {
+    update(userId, UserStatus.ONLINE, true);
+  }
+
+  /**
+   * Sets the user OFFLINE until the next markOnline, heartbeats are ignored
+   * until then.
+   */
+  public void markOffline(Long userId) {
+    update(userId, UserStatus.OFFLINE, true);
+  }
+
+  /**
+   * Sets the status of users whose USER rows already have it, e.g. after a
+   * bulk status update. Unlike markOnline/markOffline no write is scheduled;
+   * OFFLINE ignores heartbeats the same way as markOffline.
+   */
+  public void applyWritten(Collection<Long> userIds, UserStatus status) {
+    for (Long userId : userIds) {
+      update(userId, status, false);
+    }
+  }
+
+  /**
+   * Refreshes the last-seen time of the user, which keeps (or makes) the user
+   * ONLINE, unless the user was set OFFLINE on purpose.
+   */
+  public void heartbeat(Long userId) {
+    if (userId == null) {
+      return;
+    }
+    Presence online = new Presence(UserStatus.ONLINE, clock.millis(), false);
+    while (true) {
+      Presence previous = presences.get(userId);
+      if (previous != null && previous.signedOff) {
+        return;
+      }
+      // a concurrent markOffline wins, the loop then sees it
+      boolean replaced = previous == null
+          ? presences.putIfAbsent(userId, online) == null
+          : presences.replace(userId, previous, online);
+      if (replaced) {
+        changed(userId, previous, UserStatus.ONLINE, true);
+        return;
+      }
+    }
+  }
+
+  public UserStatus statusOf(Long userId) {
+    if (userId == null) {
+      return UserStatus.OFFLINE;
+    }
+    Presence presence = presences.get(userId);
+    return presence == null ? UserStatus.OFFLINE : presence.status;
+  }
+
+  /**
+   * Sets every ONLINE user whose last heartbeat is older than the timeout to
+   * OFFLINE.
+   *
+   * @return the number of users that went OFFLINE
+   */
+  public int expireStale() {
+    long deadline = clock.millis() - heartbeatTimeoutMillis;
+    int expired = 0;
+    for (Map.Entry<Long, Presence> entry : presences.entrySet()) {
+      Presence presence = entry.getValue();
+      if (presence.status == UserStatus.ONLINE && presence.lastSeen < deadline
+          && presences.replace(entry.getKey(), presence, new Presence(UserStatus.OFFLINE, presence.lastSeen, false))) {
+        dirty.add(entry.getKey());
+        statusChanged(entry.getKey(), UserStatus.OFFLINE);
+        expired++;
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * Removes and returns the current status of every user whose status changed
+   * since the last call. A change racing with this call is either part of the
+   * result or reported by the next call.
+   */
+  public Map<Long, UserStatus> drainDirty() {
+    Map<Long, UserStatus> changes = new HashMap<>();
+    Iterator<Long> ids = dirty.iterator();
+    while (ids.hasNext()) {
+      Long id = ids.next();
+      ids.remove();
+      changes.put(id, statusOf(id));
+    }
+    return changes;
+  }
+
+  /**
+   * The listener is called on the thread that changed the status and must not
+   * block.
+   */
+  public void addStatusListener(BiConsumer<Long, UserStatus> listener) {
+    statusListeners.add(listener);
+  }
+
+  /**
+   * @return the number of times a user's status changed since the server started
+   */
+  public long statusChangeCount() {
+    return statusChanges.get();
+  }
+
+  public long lastStatusChange() {
+    return lastStatusChange.get();
+  }
+
+  /**
+   * Schedules the users for the next write again, e.g. after a failed write.
+   */
+  public void markDirty(Collection<Long> userIds) {
+    dirty.addAll(userIds);
+  }
+
+  // every explicit status change; OFFLINE set this way is not undone by heartbeats
+  private void update(Long userId, UserStatus status, boolean scheduleWrite) {
+    if (userId == null) {
+      return;
+    }
+    Presence previous = presences.put(userId,
+        new Presence(status, clock.millis(), status == UserStatus.OFFLINE));
+    changed(userId, previous, status, scheduleWrite);
+  }
+
+  private void changed(Long userId, Presence previous, UserStatus status, boolean scheduleWrite) {
+    if (scheduleWrite && (previous == null || previous.status != status)) {
+      dirty.add(userId);
+    }
+    // unknown users are OFFLINE, so only a change from the visible status counts
+    if ((previous == null ? UserStatus.OFFLINE : previous.status) != status) {
+      statusChanged(userId, status);
+    }
+  }
+
+  private void statusChanged(Long userId, UserStatus status) {
+    statusChanges.incrementAndGet();
+    lastStatusChange.accumulateAndGet(clock.millis(), Math::max);
+    for (BiConsumer<Long, UserStatus> listener : statusListeners) {
+      listener.accept(userId, status);
+    }
+  }
+
+  private static final class Presence {
+    private final UserStatus status;
+    private final long lastSeen;
+    // OFFLINE on purpose rather than by timeout
+    private final boolean signedOff;
+
+    private Presence(UserStatus status, long lastSeen, boolean signedOff) {
+      this.status = status;
+      this.lastSeen = lastSeen;
+      this.signedOff = signedOff;
+    }
+  }
+}
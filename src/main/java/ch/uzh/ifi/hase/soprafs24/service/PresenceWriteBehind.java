@@ -0,0 +1,70 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Presence Write Behind
+ * Periodically expires users without a recent heartbeat and writes the status
+ * changes collected by the PresenceRegistry to the USER table, with one UPDATE
+ * per status and chunk of ids instead of one save() and flush() per change.
+ */
+@Component
+public class PresenceWriteBehind {
+
+  private static final int MAX_IDS_PER_UPDATE = 1000;
+
+  private final Logger log = LoggerFactory.getLogger(PresenceWriteBehind.class);
+
+  private final PresenceRegistry presenceRegistry;
+
+  private final UserRepository userRepository;
+
+  public PresenceWriteBehind(PresenceRegistry presenceRegistry,
+      @Qualifier("userRepository") UserRepository userRepository) {
+    this.presenceRegistry = presenceRegistry;
+    this.userRepository = userRepository;
+  }
+
+  @Scheduled(fixedDelayString = "${user.presence.flush-interval-ms:5000}")
+  public void flush() {
+    presenceRegistry.expireStale();
+    Map<Long, UserStatus> changes = presenceRegistry.drainDirty();
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    Map<UserStatus, List<Long>> idsByStatus = new EnumMap<>(UserStatus.class);
+    changes.forEach((id, status) -> idsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(id));
+
+    idsByStatus.forEach((status, ids) -> {
+      for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+        List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_UPDATE, ids.size()));
+        try {
+          userRepository.updateStatusByIdIn(status, chunk);
+        } catch (RuntimeException e) {
+          log.warn("Writing {} presence changes failed, retrying with the next flush", chunk.size(), e);
+          presenceRegistry.markDirty(chunk);
+        }
+      }
+    });
+    log.debug("Wrote {} presence changes", changes.size());
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+}
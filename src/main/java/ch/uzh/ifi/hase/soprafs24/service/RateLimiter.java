@@ -0,0 +1,151 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate Limiter
+ * Token buckets per endpoint and client key (IP address or username), used by
+ * the RateLimitAdvice to reject requests with 429 before they reach the
+ * UserService. The limit of an endpoint and key type is configured as
+ * user.rate-limit.<endpoint>.<key type>=<capacity>/<period>: up to capacity
+ * requests at once, refilled evenly over the period. Without such a property
+ * the endpoint is not limited for that key type.
+ * The buckets live in a Caffeine cache that is bounded by
+ * user.rate-limit.maximum-keys and drops buckets that were idle for
+ * user.rate-limit.idle-timeout; a dropped bucket starts full again, so the
+ * timeout should not be shorter than the longest period.
+ * Rejections are counted as users.rate-limit.rejected{endpoint, key}.
+ */
+@Component
+public class RateLimiter {
+
+  public static final String PER_IP = "per-ip";
+  public static final String PER_USERNAME = "per-username";
+
+  private static final String PROPERTY_PREFIX = "user.rate-limit.";
+
+  private final Environment environment;
+
+  private final MeterRegistry meterRegistry;
+
+  private final LongSupplier nanoTime;
+
+  private final Cache<String, TokenBucket> buckets;
+
+  private final ConcurrentHashMap<String, Optional<Limit>> limits = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, Counter> rejections = new ConcurrentHashMap<>();
+
+  @Autowired
+  public RateLimiter(Environment environment, MeterRegistry meterRegistry,
+      @Value("${user.rate-limit.maximum-keys:100000}") long maximumKeys,
+      @Value("${user.rate-limit.idle-timeout:10m}") Duration idleTimeout) {
+    this(environment, meterRegistry, maximumKeys, idleTimeout, System::nanoTime);
+  }
+
+  RateLimiter(Environment environment, MeterRegistry meterRegistry, long maximumKeys, Duration idleTimeout,
+      LongSupplier nanoTime) {
+    this.environment = environment;
+    this.meterRegistry = meterRegistry;
+    this.nanoTime = nanoTime;
+    this.buckets = Caffeine.newBuilder()
+        .maximumSize(maximumKeys)
+        .expireAfterAccess(idleTimeout)
+        .build();
+    Gauge.builder("users.rate-limit.buckets", buckets, Cache::estimatedSize)
+        .description("Token buckets currently held by the rate limiter").register(meterRegistry);
+  }
+
+  /**
+   * Takes a token from the bucket of the key.
+   *
+   * @return 0 if the request may proceed, otherwise the number of nanoseconds
+   *         until the next token is available
+   */
+  public long tryAcquire(String endpoint, String keyType, String key) {
+    Optional<Limit> limit = limits.computeIfAbsent(endpoint + '.' + keyType, this::loadLimit);
+    if (!limit.isPresent() || key == null) {
+      return 0;
+    }
+    long now = nanoTime.getAsLong();
+    TokenBucket bucket = buckets.get(endpoint + '/' + keyType + '/' + key, k -> new TokenBucket(now));
+    long wait = bucket.tryAcquire(now, limit.get());
+    if (wait > 0) {
+      rejections.computeIfAbsent(endpoint + '.' + keyType, name -> Counter.builder("users.rate-limit.rejected")
+          .tag("endpoint", endpoint).tag("key", keyType)
+          .description("Requests rejected by the rate limiter").register(meterRegistry))
+          .increment();
+    }
+    return wait;
+  }
+
+  private Optional<Limit> loadLimit(String name) {
+    String spec = environment.getProperty(PROPERTY_PREFIX + name);
+    if (spec == null || spec.trim().isEmpty()) {
+      return Optional.empty();
+    }
+    String[] parts = spec.split("/");
+    if (parts.length != 2) {
+      throw new IllegalStateException(PROPERTY_PREFIX + name + " must be <capacity>/<period>, was " + spec);
+    }
+    return Optional.of(new Limit(Integer.parseInt(parts[0].trim()), DurationStyle.detectAndParse(parts[1].trim())));
+  }
+
+  static final class Limit {
+    // one token is added every interval, a full bucket allows tolerance + 1 interval at once
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    Limit(int capacity, Duration period) {
+      if (capacity < 1 || period.isNegative() || period.isZero()) {
+        throw new IllegalArgumentException("a rate limit needs a positive capacity and period");
+      }
+      this.intervalNanos = period.toNanos() / capacity;
+      this.toleranceNanos = intervalNanos * (capacity - 1);
+    }
+  }
+
+  /**
+   * A token bucket stored as the time at which it would be empty again if it
+   * were refilled continuously (the "theoretical arrival time" of the generic
+   * cell rate algorithm). Taking a token is a single compare-and-set, there is
+   * no lock and no refill timer.
+   */
+  static final class TokenBucket {
+    private final AtomicLong emptyAt;
+
+    TokenBucket(long now) {
+      this.emptyAt = new AtomicLong(now);
+    }
+
+    long tryAcquire(long now, Limit limit) {
+      while (true) {
+        long current = emptyAt.get();
+        long start = Math.max(current, now);
+        long excess = start - now - limit.toleranceNanos;
+        if (excess > 0) {
+          return excess;
+        }
+        if (emptyAt.compareAndSet(current, start + limit.intervalNanos)) {
+          return 0;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.ReactiveUserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Date;
+import java.util.UUID;
+
+/**
+ * Reactive User Service
+ * Non-blocking counterpart of the UserService for the reactive profile. It
+ * shares presence, token cache and password hashing with the servlet stack but
+ * talks to the database through the ReactiveUserRepository.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+  private final Logger log = LoggerFactory.getLogger(ReactiveUserService.class);
+
+  private final ReactiveUserRepository reactiveUserRepository;
+
+  private final UserTokenCache userTokenCache;
+
+  private final PresenceRegistry presenceRegistry;
+
+  private final PasswordHasher passwordHasher;
+
+  private final UserWriteBehind userWriteBehind;
+
+  private final UserMetrics userMetrics;
+
+  private final UsernameFilter usernameFilter;
+
+  public ReactiveUserService(ReactiveUserRepository reactiveUserRepository, UserTokenCache userTokenCache,
+      PresenceRegistry presenceRegistry, PasswordHasher passwordHasher, UserWriteBehind userWriteBehind,
+      UserMetrics userMetrics, UsernameFilter usernameFilter) {
+    this.reactiveUserRepository = reactiveUserRepository;
+    this.userTokenCache = userTokenCache;
+    this.presenceRegistry = presenceRegistry;
+    this.passwordHasher = passwordHasher;
+    this.userWriteBehind = userWriteBehind;
+    this.userMetrics = userMetrics;
+    this.usernameFilter = usernameFilter;
+  }
+
+  public Flux<User> getUsers() {
+    return reactiveUserRepository.findAll();
+  }
+
+  public Mono<User> createUser(UsernamePasswordDTO userInput) {
+    return reactiveUserRepository.findByUsername(userInput.getUsername())
+        .flatMap(existing -> {
+          userMetrics.registrationConflict();
+          return Mono.<String>error(
+              new ResponseStatusException(HttpStatus.CONFLICT, "add User failed because username already exists"));
+        })
+        .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(passwordHasher.hash(userInput.getPassword()))))
+        .flatMap(passwordHash -> {
+          User newUser = new User();
+          newUser.setUsername(userInput.getUsername());
+          newUser.setPassword(passwordHash);
+          newUser.setToken(UUID.randomUUID());
+          newUser.setStatus(UserStatus.ONLINE);
+          newUser.setCreationDate(new Date(System.currentTimeMillis()));
+          // added before the row exists, so a lookup never misses a committed user
+          usernameFilter.add(newUser.getUsername());
+          return reactiveUserRepository.insert(newUser);
+        })
+        // registered concurrently after the lookup above, caught by the unique index
+        .onErrorMap(DataIntegrityViolationException.class, e -> {
+          userMetrics.registrationConflict();
+          return new ResponseStatusException(HttpStatus.CONFLICT, "add User failed because username already exists");
+        })
+        .doOnNext(createdUser -> {
+          presenceRegistry.markOnline(createdUser.getId());
+          log.info("Created user {}", createdUser.getId());
+        });
+  }
+
+  public Mono<User> checkLoginCorrect(UsernamePasswordDTO userInput) {
+    return reactiveUserRepository.findByUsername(userInput.getUsername())
+        .switchIfEmpty(Mono.defer(() -> {
+          userMetrics.loginFailed();
+          return Mono.error(loginFailed());
+        }))
+        .flatMap(user -> Mono.defer(() -> Mono.fromFuture(passwordHasher.matches(userInput.getPassword(), user.getPassword())))
+            .flatMap(matches -> {
+              if (!matches) {
+                userMetrics.loginFailed();
+                return Mono.error(loginFailed());
+              }
+              userMetrics.loginSucceeded();
+              if (passwordHasher.needsRehash(user.getPassword())) {
+                rehashPassword(user.getId(), userInput.getPassword());
+              }
+              presenceRegistry.markOnline(user.getId());
+              return Mono.just(user);
+            }));
+  }
+
+  private void rehashPassword(Long userId, String rawPassword) {
+    try {
+      passwordHasher.hash(rawPassword)
+          .thenAccept(passwordHash -> userWriteBehind.submit(userId, PendingUserUpdate.password(passwordHash)));
+    } catch (ResponseStatusException e) {
+      // the hasher is saturated, the next login will try again
+      log.debug("Skipping rehash of user {}", userId);
+    }
+  }
+
+  private static ResponseStatusException loginFailed() {
+    String baseErrorMessage = "The %s provided %s not unique. Therefore, the user could not be created!";
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        String.format(baseErrorMessage, "username and the password", "are"));
+  }
+
+  public Mono<User> findUserToDisplayById(long id) {
+    return reactiveUserRepository.findById(id)
+        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "user with userId was not found")));
+  }
+
+  public Mono<User> fetchUserFromToken(UUID token) {
+    return Mono.justOrEmpty(userTokenCache.getIfPresent(token))
+        .switchIfEmpty(Mono.defer(() -> reactiveUserRepository.findByToken(token).doOnNext(userTokenCache::put)))
+        .doOnSuccess(user -> {
+          if (user == null) {
+            userMetrics.tokenMiss();
+          }
+        });
+  }
+
+  public Mono<Void> setUserOffline(String username) {
+    return reactiveUserRepository.findByUsername(username.trim())
+        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "user with username was not found")))
+        .doOnNext(user -> presenceRegistry.markOffline(user.getId()))
+        .then();
+  }
+
+  /**
+   * Same answers as the servlet stack: 404 for an unknown id, 400 for a
+   * malformed birth date and 409 if the new username is taken (unique index).
+   */
+  public Mono<Void> saveUserNameBirthDate(UsernameBirthDateDTO input, long id) {
+    return reactiveUserRepository.findById(id)
+        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "user with userId was not found")))
+        .flatMap(user -> {
+          Date birthDate;
+          try {
+            birthDate = input.getInputBirthDate() == null ? null : Date.valueOf(input.getInputBirthDate());
+          } catch (IllegalArgumentException e) {
+            return Mono.<Integer>error(
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, "birth date must be yyyy-mm-dd"));
+          }
+          if (input.getInputUsername() != null) {
+            usernameFilter.add(input.getInputUsername());
+          }
+          return reactiveUserRepository.updateProfile(id, input.getInputUsername(), birthDate)
+              .doOnNext(updated -> userTokenCache.invalidate(user.getToken()));
+        })
+        .onErrorMap(DataIntegrityViolationException.class,
+            e -> new ResponseStatusException(HttpStatus.CONFLICT, "update failed because username already exists"))
+        .then();
+  }
+}
@@ -0,0 +1,92 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Tokens
+ * Session tokens are random UUIDs, kept as two longs in memory and as a
+ * 16-byte UUID column in the database. The parser accepts only the canonical
+ * 36-character form (8-4-4-4-12 hex digits) and works directly on the
+ * characters, so a valid token costs no allocation besides the UUID itself.
+ */
+public final class Tokens {
+
+  public static final int LENGTH = 36;
+
+  private static final int DASH = 16;
+
+  private static final byte[] HEX_DIGITS = new byte[128];
+
+  static {
+    Arrays.fill(HEX_DIGITS, (byte) -1);
+    for (int digit = 0; digit < 16; digit++) {
+      HEX_DIGITS[Character.forDigit(digit, 16)] = (byte) digit;
+      HEX_DIGITS[Character.toUpperCase(Character.forDigit(digit, 16))] = (byte) digit;
+    }
+  }
+
+  private Tokens() {
+  }
+
+  /**
+   * @return the token, or null if the text is not a token
+   */
+  public static UUID parse(CharSequence text) {
+    if (text == null || text.length() != LENGTH) {
+      return null;
+    }
+    long mostSigBits = 0;
+    long leastSigBits = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      int digit = digitAt(i, text.charAt(i));
+      if (digit == DASH) {
+        continue;
+      }
+      if (digit < 0) {
+        return null;
+      }
+      if (i < 18) {
+        mostSigBits = mostSigBits << 4 | digit;
+      } else {
+        leastSigBits = leastSigBits << 4 | digit;
+      }
+    }
+    return new UUID(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * Same as {@link #parse(CharSequence)} for a range of a char array, e.g. the
+   * text buffer of a JSON parser.
+   */
+  public static UUID parse(char[] chars, int offset, int length) {
+    if (length != LENGTH) {
+      return null;
+    }
+    long mostSigBits = 0;
+    long leastSigBits = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      int digit = digitAt(i, chars[offset + i]);
+      if (digit == DASH) {
+        continue;
+      }
+      if (digit < 0) {
+        return null;
+      }
+      if (i < 18) {
+        mostSigBits = mostSigBits << 4 | digit;
+      } else {
+        leastSigBits = leastSigBits << 4 | digit;
+      }
+    }
+    return new UUID(mostSigBits, leastSigBits);
+  }
+
+  // value of the hex digit, DASH for a dash where one belongs, -1 otherwise
+  private static int digitAt(int position, char c) {
+    if (position == 8 || position == 13 || position == 18 || position == 23) {
+      return c == '-' ? DASH : -1;
+    }
+    return c < HEX_DIGITS.length ? HEX_DIGITS[c] : -1;
+  }
+}
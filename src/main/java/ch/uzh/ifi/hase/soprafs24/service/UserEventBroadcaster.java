@@ -0,0 +1,177 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserEventDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * User Event Broadcaster
+ * Pushes status changes (from the PresenceRegistry) and profile changes (from
+ * registration and the UserWriteBehind, after their commit) to the
+ * subscribers of GET /users/events as server-sent events.
+ * Publishing never blocks the thread that changed the user: the event is put
+ * into the bounded, coalescing UserEventBuffer of every subscriber and a
+ * small dispatcher pool writes the buffers to the connections. A slow
+ * subscriber only delays itself; if it falls too far behind it gets a resync
+ * event instead of the individual changes.
+ */
+@Component
+public class UserEventBroadcaster {
+
+  private final Logger log = LoggerFactory.getLogger(UserEventBroadcaster.class);
+
+  static final String USER_EVENT = "user";
+  static final String RESYNC_EVENT = "resync";
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger threadCount = new AtomicInteger();
+
+  private final ExecutorService dispatcher;
+
+  private final int bufferSize;
+
+  private final int maxSubscribers;
+
+  private final long timeoutMillis;
+
+  public UserEventBroadcaster(PresenceRegistry presenceRegistry,
+      @Value("${user.events.subscriber-buffer-size:1000}") int bufferSize,
+      @Value("${user.events.max-subscribers:1000}") int maxSubscribers,
+      @Value("${user.events.timeout:30m}") Duration timeout,
+      @Value("${user.events.dispatcher-threads:2}") int dispatcherThreads) {
+    this.bufferSize = bufferSize;
+    this.maxSubscribers = maxSubscribers;
+    this.timeoutMillis = timeout.toMillis();
+    this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+      Thread thread = new Thread(runnable, "user-events-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    presenceRegistry.addStatusListener(this::statusChanged);
+  }
+
+  /**
+   * Registers a new subscriber. The emitter completes after user.events.timeout,
+   * clients reconnect (EventSource does so on its own) and re-read GET /users.
+   */
+  public SseEmitter subscribe() {
+    if (subscribers.size() >= maxSubscribers) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many event subscribers");
+    }
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter, new UserEventBuffer(bufferSize));
+    subscribers.add(subscriber);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  public void statusChanged(Long userId, UserStatus status) {
+    publish(UserEventDTO.status(userId, status));
+  }
+
+  /**
+   * Publishes username and birth date of the user; inside a transaction only
+   * once it committed.
+   */
+  public void profileChanged(User user) {
+    UserEventDTO event = UserEventDTO.profile(user.getId(), user.getUsername(),
+        user.getBirthDate() == null ? null : user.getBirthDate().toLocalDate());
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          publish(event);
+        }
+      });
+    } else {
+      publish(event);
+    }
+  }
+
+  void publish(UserEventDTO event) {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.buffer.offer(event)) {
+        dispatcher.execute(subscriber::drain);
+      }
+    }
+  }
+
+  // lets proxies and load balancers keep idle connections open and finds dead ones
+  @Scheduled(fixedDelayString = "${user.events.keep-alive-ms:30000}")
+  public void keepAlive() {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.buffer.offerKeepAlive()) {
+        dispatcher.execute(subscriber::drain);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    dispatcher.shutdownNow();
+    for (Subscriber subscriber : subscribers) {
+      subscriber.emitter.complete();
+    }
+    subscribers.clear();
+  }
+
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    private final UserEventBuffer buffer;
+
+    private Subscriber(SseEmitter emitter, UserEventBuffer buffer) {
+      this.emitter = emitter;
+      this.buffer = buffer;
+    }
+
+    private void drain() {
+      UserEventBuffer.Batch batch;
+      while ((batch = buffer.poll()) != null) {
+        try {
+          if (batch.resync) {
+            emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(""));
+          }
+          for (UserEventDTO event : batch.events) {
+            emitter.send(SseEmitter.event().name(USER_EVENT).data(event, MediaType.APPLICATION_JSON));
+          }
+          if (batch.keepAlive && !batch.resync && batch.events.isEmpty()) {
+            emitter.send(SseEmitter.event().comment("keep-alive"));
+          }
+        } catch (Exception e) {
+          // the client is gone; the buffer stays scheduled, so nothing is queued for it any more
+          log.debug("Dropping event subscriber", e);
+          subscribers.remove(this);
+          emitter.completeWithError(e);
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserEventDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * User Event Buffer
+ * The pending events of one subscriber of the UserEventBroadcaster. Events of
+ * the same user are coalesced into one, so the buffer holds at most one event
+ * per user and a slow subscriber only gets the latest state. If more than
+ * capacity users are pending the buffer is dropped and the subscriber is told
+ * to resync (re-read GET /users) instead.
+ * offer never blocks; it tells the caller whether a drain has to be scheduled,
+ * so at most one drain per subscriber is queued at any time.
+ */
+final class UserEventBuffer {
+
+  private final int capacity;
+
+  private final LinkedHashMap<Long, UserEventDTO> pending = new LinkedHashMap<>();
+
+  private boolean overflowed;
+
+  private boolean keepAlive;
+
+  private boolean scheduled;
+
+  UserEventBuffer(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return true if the caller has to schedule a drain
+   */
+  synchronized boolean offer(UserEventDTO event) {
+    if (!overflowed) {
+      UserEventDTO previous = pending.get(event.getId());
+      if (previous != null) {
+        pending.put(event.getId(), previous.mergedWith(event));
+      } else if (pending.size() < capacity) {
+        pending.put(event.getId(), event);
+      } else {
+        // the resync covers this event and everything dropped with it
+        pending.clear();
+        overflowed = true;
+      }
+    }
+    return schedule();
+  }
+
+  /**
+   * @return true if the caller has to schedule a drain
+   */
+  synchronized boolean offerKeepAlive() {
+    keepAlive = true;
+    return schedule();
+  }
+
+  /**
+   * Takes everything pending. Returns null and marks the buffer as idle if
+   * nothing is pending, the next offer then schedules a drain again.
+   */
+  synchronized Batch poll() {
+    if (pending.isEmpty() && !overflowed && !keepAlive) {
+      scheduled = false;
+      return null;
+    }
+    Batch batch = new Batch(overflowed, keepAlive, new ArrayList<>(pending.values()));
+    pending.clear();
+    overflowed = false;
+    keepAlive = false;
+    return batch;
+  }
+
+  synchronized int size() {
+    return pending.size();
+  }
+
+  private boolean schedule() {
+    if (scheduled) {
+      return false;
+    }
+    scheduled = true;
+    return true;
+  }
+
+  static final class Batch {
+    final boolean resync;
+    final boolean keepAlive;
+    final List<UserEventDTO> events;
+
+    private Batch(boolean resync, boolean keepAlive, List<UserEventDTO> events) {
+      this.resync = resync;
+      this.keepAlive = keepAlive;
+      this.events = events;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ImportResult;
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserImportReportDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserImportResultDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * User Import Service
+ * Registers many users at once (POST /users/bulk). The users are processed in
+ * chunks of user.bulk.chunk-size: one query checks which usernames of the
+ * chunk exist, the passwords are hashed in parallel on the PasswordHasher
+ * pool and the new users are inserted in one transaction as JDBC batches.
+ * Every entry gets a result in the report; an invalid or taken entry does not
+ * affect the others. Imported users are OFFLINE until they log in.
+ */
+@Service
+public class UserImportService {
+
+  private final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+  private final UserRepository userRepository;
+
+  private final PasswordHasher passwordHasher;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final UserRevision userRevision;
+
+  private final UserEventBroadcaster userEventBroadcaster;
+
+  private final UsernameFilter usernameFilter;
+
+  private final int chunkSize;
+
+  private final int maxUsers;
+
+  public UserImportService(@Qualifier("userRepository") UserRepository userRepository, PasswordHasher passwordHasher,
+      TransactionTemplate transactionTemplate, UserRevision userRevision, UserEventBroadcaster userEventBroadcaster,
+      UsernameFilter usernameFilter,
+      @Value("${user.bulk.chunk-size:1000}") int chunkSize,
+      @Value("${user.bulk.max-users:100000}") int maxUsers) {
+    this.userRepository = userRepository;
+    this.passwordHasher = passwordHasher;
+    this.transactionTemplate = transactionTemplate;
+    this.userRevision = userRevision;
+    this.userEventBroadcaster = userEventBroadcaster;
+    this.usernameFilter = usernameFilter;
+    this.chunkSize = chunkSize;
+    this.maxUsers = maxUsers;
+  }
+
+  public UserImportReportDTO importUsers(List<UsernamePasswordDTO> users) {
+    if (users.size() > maxUsers) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+          String.format("at most %d users can be imported at once", maxUsers));
+    }
+
+    List<UserImportResultDTO> results = new ArrayList<>(users.size());
+    Set<String> seenUsernames = new HashSet<>();
+    List<Entry> chunk = new ArrayList<>(chunkSize);
+
+    for (int index = 0; index < users.size(); index++) {
+      UsernamePasswordDTO user = users.get(index);
+      UserImportResultDTO result = new UserImportResultDTO();
+      result.setIndex(index);
+      result.setUsername(user == null ? null : user.getUsername());
+      results.add(result);
+
+      if (user == null || isBlank(user.getUsername()) || isBlank(user.getPassword())) {
+        result.setResult(ImportResult.INVALID);
+      } else if (!seenUsernames.add(user.getUsername())) {
+        result.setResult(ImportResult.DUPLICATE);
+      } else {
+        chunk.add(new Entry(user, result));
+        if (chunk.size() == chunkSize) {
+          importChunk(chunk);
+          chunk.clear();
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      importChunk(chunk);
+    }
+
+    UserImportReportDTO report = new UserImportReportDTO();
+    int created = (int) results.stream().filter(result -> result.getResult() == ImportResult.CREATED).count();
+    report.setCreated(created);
+    report.setFailed(results.size() - created);
+    report.setResults(results);
+    log.info("Imported {} of {} users", created, results.size());
+    return report;
+  }
+
+  private void importChunk(List<Entry> chunk) {
+    // only names the UsernameFilter has seen can exist
+    List<String> usernames = new ArrayList<>(chunk.size());
+    for (Entry entry : chunk) {
+      if (usernameFilter.mightContain(entry.input.getUsername())) {
+        usernames.add(entry.input.getUsername());
+      }
+    }
+    Set<String> existing = usernames.isEmpty()
+        ? new HashSet<>()
+        : new HashSet<>(userRepository.findExistingUsernames(usernames));
+
+    List<Entry> toCreate = new ArrayList<>(chunk.size());
+    List<String> passwords = new ArrayList<>(chunk.size());
+    for (Entry entry : chunk) {
+      if (existing.contains(entry.input.getUsername())) {
+        entry.result.setResult(ImportResult.CONFLICT);
+      } else {
+        toCreate.add(entry);
+        passwords.add(entry.input.getPassword());
+      }
+    }
+    if (toCreate.isEmpty()) {
+      return;
+    }
+
+    List<String> hashes;
+    try {
+      hashes = passwordHasher.hashAll(passwords);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The import was interrupted");
+    }
+
+    List<User> users = new ArrayList<>(toCreate.size());
+    Date creationDate = new Date(System.currentTimeMillis());
+    for (int i = 0; i < toCreate.size(); i++) {
+      User user = new User();
+      user.setUsername(toCreate.get(i).input.getUsername());
+      user.setPassword(hashes.get(i));
+      user.setToken(UUID.randomUUID());
+      user.setStatus(UserStatus.OFFLINE);
+      user.setCreationDate(creationDate);
+      usernameFilter.add(user.getUsername());
+      users.add(user);
+      toCreate.get(i).user = user;
+    }
+
+    try {
+      insert(users);
+      toCreate.forEach(this::created);
+    } catch (DataIntegrityViolationException e) {
+      // a username was registered since the check, find out which one by inserting one by one
+      log.debug("Inserting {} users as one batch failed, inserting them one by one", users.size(), e);
+      for (Entry entry : toCreate) {
+        entry.user.setId(null);
+        try {
+          insert(List.of(entry.user));
+          created(entry);
+        } catch (DataIntegrityViolationException conflict) {
+          entry.result.setResult(ImportResult.CONFLICT);
+        }
+      }
+    }
+  }
+
+  // one transaction, the INSERTs go out as JDBC batches of hibernate.jdbc.batch_size
+  private void insert(List<User> users) {
+    transactionTemplate.executeWithoutResult(status -> {
+      userRepository.saveAll(users);
+      userRepository.flush();
+    });
+  }
+
+  private void created(Entry entry) {
+    entry.result.setResult(ImportResult.CREATED);
+    entry.result.setId(entry.user.getId());
+    userRevision.changed(entry.user.getId());
+    userEventBroadcaster.profileChanged(entry.user);
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+  private static final class Entry {
+    private final UsernamePasswordDTO input;
+    private final UserImportResultDTO result;
+    private User user;
+
+    private Entry(UsernamePasswordDTO input, UserImportResultDTO result) {
+      this.input = input;
+      this.result = result;
+    }
+  }
+}
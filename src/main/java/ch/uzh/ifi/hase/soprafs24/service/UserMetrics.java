@@ -0,0 +1,48 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * User Metrics
+ * Business counters of the user endpoints, exported through Actuator
+ * (/actuator/prometheus). Request timers per endpoint are recorded by Spring
+ * (http.server.requests), repository timers by the RepositoryMetricsAspect.
+ */
+@Component
+public class UserMetrics {
+
+  private final Counter loginSuccess;
+  private final Counter loginFailure;
+  private final Counter registrationConflicts;
+  private final Counter tokenMisses;
+
+  public UserMetrics(MeterRegistry meterRegistry) {
+    this.loginSuccess = Counter.builder("users.login").tag("result", "success")
+        .description("Logins with correct credentials").register(meterRegistry);
+    this.loginFailure = Counter.builder("users.login").tag("result", "failure")
+        .description("Logins with unknown username or wrong password").register(meterRegistry);
+    this.registrationConflicts = Counter.builder("users.registration.conflicts")
+        .description("Registrations rejected because the username exists").register(meterRegistry);
+    this.tokenMisses = Counter.builder("users.token.misses")
+        .description("Token lookups that did not resolve to a user").register(meterRegistry);
+  }
+
+  public void loginSucceeded() {
+    loginSuccess.increment();
+  }
+
+  public void loginFailed() {
+    loginFailure.increment();
+  }
+
+  public void registrationConflict() {
+    registrationConflicts.increment();
+  }
+
+  public void tokenMiss() {
+    tokenMisses.increment();
+  }
+}
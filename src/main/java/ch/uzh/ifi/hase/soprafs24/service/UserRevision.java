@@ -0,0 +1,96 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * User Revision
+ * In-memory change counter of the USER table, from which the controller
+ * derives ETag and Last-Modified of GET /users and GET /users/{id} without
+ * reading the database. Every write of a user through the UserService or the
+ * UserWriteBehind increments the table revision and records it as the
+ * revision of that user. The counters start at 0 with every server start, the
+ * epoch keeps ETags of different runs apart.
+ * The presence status is not stored here, see PresenceRegistry.
+ */
+@Component
+public class UserRevision {
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+  private final long startedAt = System.currentTimeMillis();
+
+  private final AtomicLong revision = new AtomicLong();
+
+  private final AtomicLong lastModified = new AtomicLong(startedAt);
+
+  private final ConcurrentHashMap<Long, Change> changes = new ConcurrentHashMap<>();
+
+  /**
+   * Records a change of the user. Inside a transaction the revision is only
+   * incremented after the commit: a request that sees the new revision must
+   * also see the new data, otherwise the old data would be cached under it.
+   */
+  public void changed(Long userId) {
+    if (userId == null) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          record(userId);
+        }
+      });
+    } else {
+      record(userId);
+    }
+  }
+
+  public String epoch() {
+    return epoch;
+  }
+
+  public long revision() {
+    return revision.get();
+  }
+
+  public long lastModified() {
+    return lastModified.get();
+  }
+
+  /**
+   * @return the table revision of the last change of the user, 0 if it did not
+   * change since the server started
+   */
+  public long revisionOf(Long userId) {
+    Change change = changes.get(userId);
+    return change == null ? 0 : change.revision;
+  }
+
+  public long lastModifiedOf(Long userId) {
+    Change change = changes.get(userId);
+    return change == null ? startedAt : change.timestamp;
+  }
+
+  private void record(Long userId) {
+    long now = System.currentTimeMillis();
+    long current = revision.incrementAndGet();
+    changes.put(userId, new Change(current, now));
+    lastModified.accumulateAndGet(now, Math::max);
+  }
+
+  private static final class Change {
+    private final long revision;
+    private final long timestamp;
+
+    private Change(long revision, long timestamp) {
+      this.revision = revision;
+      this.timestamp = timestamp;
+    }
+  }
+}
@@ -3,7 +3,8 @@ package ch.uzh.ifi.hase.soprafs24.service;
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
-import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 
@@ -11,6 +12,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,8 +21,10 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.sql.Date;
 import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * User Service
@@ -36,124 +41,260 @@ public class UserService {
 
   private final UserRepository userRepository;
 
+  private final UserTokenCache userTokenCache;
+
+  private final PresenceRegistry presenceRegistry;
+
+  private final UserWriteBehind userWriteBehind;
+
+  private final PasswordHasher passwordHasher;
+
+  private final UserMetrics userMetrics;
+
+  private final UserRevision userRevision;
+
+  private final UserEventBroadcaster userEventBroadcaster;
+
+  private final UsernameFilter usernameFilter;
+
   @Autowired
-  public UserService(@Qualifier("userRepository") UserRepository userRepository) {
+  public UserService(@Qualifier("userRepository") UserRepository userRepository, UserTokenCache userTokenCache,
+      PresenceRegistry presenceRegistry, UserWriteBehind userWriteBehind, PasswordHasher passwordHasher,
+      UserMetrics userMetrics, UserRevision userRevision, UserEventBroadcaster userEventBroadcaster,
+      UsernameFilter usernameFilter) {
     this.userRepository = userRepository;
+    this.userTokenCache = userTokenCache;
+    this.presenceRegistry = presenceRegistry;
+    this.userWriteBehind = userWriteBehind;
+    this.passwordHasher = passwordHasher;
+    this.userMetrics = userMetrics;
+    this.userRevision = userRevision;
+    this.userEventBroadcaster = userEventBroadcaster;
+    this.usernameFilter = usernameFilter;
+  }
+
+  /**
+   * The read methods return projections instead of entities and run in
+   * read-only transactions: only the columns of the DTOs are selected and
+   * Hibernate neither tracks the results nor dirty-checks them on commit.
+   */
+  @Transactional(readOnly = true)
+  public List<UserSummary> getUsers() {
+    return this.userRepository.findAllSummaries();
+  }
+
+  /**
+   * Returns at most limit users with an id greater than the cursor, ordered by
+   * id. The id of the last user of a full page is the cursor for the next one.
+   */
+  @Transactional(readOnly = true)
+  public List<UserSummary> getUsersAfter(long after, int limit) {
+    return this.userRepository.findSummariesAfter(after, PageRequest.of(0, limit));
   }
 
-  public List<User> getUsers() {
-    return this.userRepository.findAll();
+  /**
+   * Hands every user to the consumer one at a time, ordered by id. The
+   * projections are not managed, so the persistence context does not grow
+   * with the table.
+   */
+  @Transactional(readOnly = true)
+  public void streamUsers(Consumer<UserSummary> consumer) {
+    try (Stream<UserSummary> users = userRepository.streamSummaries()) {
+      users.forEach(consumer);
+    }
   }
 
-  public User createUser(UsernamePasswordDTO userInput) {
+  /**
+   * Creates the user with the password hash computed by the PasswordHasher;
+   * the plaintext password of the input is not stored.
+   */
+  public User createUser(UsernamePasswordDTO userInput, String passwordHash) {
     User newUser = new User();
     newUser.setUsername(userInput.getUsername());
-    newUser.setPassword(userInput.getPassword());
-    newUser.setToken(UUID.randomUUID().toString());
+    newUser.setPassword(passwordHash);
+    newUser.setToken(UUID.randomUUID());
     newUser.setStatus(UserStatus.ONLINE);
     newUser.setCreationDate(new Date(System.currentTimeMillis()));
     newUser.setBirthDate(null);
-    checkIfUserExists(newUser);
-    // saves the given entity but data is only persisted in the database once
-    // flush() is called
+    checkIfUserExists(newUser.getUsername());
+    // added before the row exists, so a lookup never misses a committed user
+    usernameFilter.add(newUser.getUsername());
+    // registration is always written synchronously: the response carries the
+    // id and token and a username conflict has to be reported to this client
     newUser = userRepository.save(newUser);
     userRepository.flush();
+    presenceRegistry.markOnline(newUser.getId());
+    userRevision.changed(newUser.getId());
+    userEventBroadcaster.profileChanged(newUser);
 
-    log.info("Created Information for User: {}", newUser.getCreationDate());
+    log.info("Created user {}", newUser.getId());
     return newUser;
   }
 
   /**
    * This is a helper method that will check the uniqueness criteria of the
-   * username and the name
-   * defined in the User entity. The method will do nothing if the input is unique
-   * and throw an error otherwise.
+   * username defined in the User entity. The method will do nothing if the
+   * username is unique and throw an error otherwise. Registration calls it
+   * before the password is hashed, so a taken username costs no bcrypt round.
    *
-   * @param userToBeCreated
+   * @param username
    * @throws org.springframework.web.server.ResponseStatusException
    * @see User
    */
-  private void checkIfUserExists(User userToBeCreated) {
-    User userByUsername = userRepository.findByUsername(userToBeCreated.getUsername());
+  @Transactional(readOnly = true)
+  public void checkIfUserExists(String username) {
+    if (!usernameFilter.mightContain(username)) {
+      // never used before; a concurrent registration is still caught by the unique index
+      return;
+    }
+    User userByUsername = userRepository.findByUsername(username);
     if (userByUsername != null) {
+      userMetrics.registrationConflict();
       //stopps function when this error is thrown
       throw new ResponseStatusException(HttpStatus.CONFLICT, "add User failed because username already exists");
     } 
   }
   
-  public User checkLoginCorrect(UsernamePasswordDTO userInput) {
+  /**
+   * Looks up the user and verifies the password on the PasswordHasher pool.
+   * The returned future completes with the user, or exceptionally with a 400
+   * if the username or the password is wrong. Hashes with an outdated cost are
+   * replaced in the background.
+   */
+  public CompletableFuture<User> checkLoginCorrect(UsernamePasswordDTO userInput) {
     
-    User userByUsername = userRepository.findByUsername(userInput.getUsername());
+    User userByUsername = usernameFilter.mightContain(userInput.getUsername())
+        ? userRepository.findByUsername(userInput.getUsername())
+        : null;
     String baseErrorMessage = "The %s provided %s not unique. Therefore, the user could not be created!";
     if (userByUsername == null) {
-      log.info("User doesnt exist in database");
+      log.debug("Login for unknown username");
+      userMetrics.loginFailed();
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
           String.format(baseErrorMessage, "username and the password", "are"));
     } 
 
-    if(Objects.equals(userInput.getPassword().trim(), userByUsername.getPassword().trim())){
-      log.info("Found User");
+    String storedPassword = userByUsername.getPassword();
+    return passwordHasher.matches(userInput.getPassword(), storedPassword).thenApply(matches -> {
+      if (!matches) {
+        log.debug("Wrong password for user {}", userByUsername.getId());
+        userMetrics.loginFailed();
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            String.format(baseErrorMessage, "username and the password", "are"));
+      }
+
+      log.debug("Logged in user {}", userByUsername.getId());
+      userMetrics.loginSucceeded();
+      if (passwordHasher.needsRehash(storedPassword)) {
+        rehashPassword(userByUsername.getId(), userInput.getPassword());
+      }
+      presenceRegistry.markOnline(userByUsername.getId());
       return userByUsername;
-    }
+    });
+  }
 
-    log.info("No Correct password for user found. Pasword Database: {} Password client: {}", userByUsername.getPassword(), userInput.getPassword());
-    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-          String.format(baseErrorMessage, "username and the password", "are"));
+  private void rehashPassword(Long userId, String rawPassword) {
+    try {
+      passwordHasher.hash(rawPassword)
+          .thenAccept(passwordHash -> userWriteBehind.submit(userId, PendingUserUpdate.password(passwordHash)));
+    } catch (ResponseStatusException e) {
+      // the hasher is saturated, the next login will try again
+      log.debug("Skipping rehash of user {}", userId);
+    }
+  }
 
+  /**
+   * Names the filter has never seen are answered from memory, the others
+   * with a (usually cached) lookup by natural id.
+   */
+  @Transactional(readOnly = true)
+  public boolean isUsernameAvailable(String username) {
+    return !usernameFilter.mightContain(username) || userRepository.findByUsername(username) == null;
   }
 
-  public User findUserToDisplayById(long id){
-    try {
-      log.info("Attempting to fetch user from Id: '{}'", id);
-      User user = userRepository.findById(id);
-      log.info("User found: '{}'", user);
-      return user;
-  } catch (Exception e) {
-      log.error("Error fetching user from Id: '{}'", id, e);
+  @Transactional(readOnly = true)
+  public UserProfile findUserToDisplayById(long id){
+    UserProfile user = userRepository.findProfileById(id);
+    if (user == null) {
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user with userId was not found");
     }
+    log.debug("Fetched user {}", id);
+    return user;
   }
 
+  /**
+   * Sets the user OFFLINE in the presence registry; the USER table follows with
+   * the next presence write.
+   */
   public void fetchUserFromUsername(String username){
-    User user = userRepository.findByUsername(username.trim().replaceAll("^\"|\"$", ""));
-    user.setStatus(UserStatus.OFFLINE);
-    user = userRepository.save(user);
-    userRepository.flush();
+    String name = username.trim();
+    User user = usernameFilter.mightContain(name) ? userRepository.findByUsername(name) : null;
+    if (user == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user with username was not found");
+    }
+    presenceRegistry.markOffline(user.getId());
   }
 
-  public User fetchUserFromToken(String token){
+  public User fetchUserFromToken(UUID token){
     try {
-      log.info("Attempting to fetch user for token: '{}'", token);
-      User user = userRepository.findByToken(token.trim());
-      log.info("User found: '{}'", user);
+      User user = userTokenCache.get(token, userRepository::findByToken);
+      if (user == null) {
+        userMetrics.tokenMiss();
+      }
+      log.debug("Resolved token to user {}", user == null ? null : user.getId());
       return user;
   } catch (Exception e) {
-      log.error("Error fetching user from token: '{}'", token, e);
+      // the token is a credential and is not logged
+      log.error("Error fetching user from token", e);
       // Handle the exception or rethrow it based on your requirements
       return null;
     }
   }
 
+  /**
+   * Updates username and/or birth date of the user. A new username is written
+   * before returning and a taken one is answered with 409; a birth date alone
+   * is written before returning or shortly after by the UserWriteBehind,
+   * depending on user.write.profile-durability.
+   */
   public void saveUserNameBirthDate(UsernameBirthDateDTO input, long id){
-    try {
-      User updatedUser = userRepository.findById(id);
-      
-      if (input.getInputUsername() != null){
-        log.info("Updating username!");
-        updatedUser.setUsername(input.getInputUsername());
-      }
-      
-      if (input.getInputBirthDate() != null){
-        Date date = Date.valueOf(input.getInputBirthDate());
-        log.info("Updating BirthDate: {}", date);
-        updatedUser.setBirthDate(date);
-      }
-      
-      updatedUser = userRepository.save(updatedUser);
-      userRepository.flush();
-    } catch (Exception e) {
-      log.error("Error fetching user from Id: '{}'", id, e);
+    User updatedUser = userRepository.findById(id);
+    if (updatedUser == null) {
+      log.debug("Profile update for unknown user {}", id);
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user with userId was not found");
     }
+    String username = null;
+    Date date = null;
+
+    if (input.getInputUsername() != null){
+      log.debug("Updating username of user {}", id);
+      username = input.getInputUsername();
+      checkUsernameFreeFor(username, id);
+      usernameFilter.add(username);
+    }
+
+    if (input.getInputBirthDate() != null){
+      try {
+        date = Date.valueOf(input.getInputBirthDate());
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "birth date must be yyyy-mm-dd");
+      }
+      log.debug("Updating birth date of user {}", id);
+    }
+
+    try {
+      userWriteBehind.submitProfileUpdate(updatedUser, PendingUserUpdate.profile(username, date));
+    } catch (DataIntegrityViolationException e) {
+      // taken by a concurrent rename or registration after the check above
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "update failed because username already exists");
+    }
+  }
+
+  // keeping the own username is not a conflict
+  private void checkUsernameFreeFor(String username, long id) {
+    User owner = usernameFilter.mightContain(username) ? userRepository.findByUsername(username) : null;
+    if (owner != null && owner.getId() != id) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "update failed because username already exists");
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateReportDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * User Status Service
+ * Sets the status of many users at once (POST /users/status), e.g. when a
+ * lobby closes or a gateway reconnects. The ids and usernames are resolved
+ * with one query per chunk of user.bulk.chunk-size and the status is written
+ * with one UPDATE ... WHERE id IN (...) per chunk. Each chunk is committed on
+ * its own and then applied to the PresenceRegistry, so the write-behind does
+ * not write it again. Unknown ids and usernames are reported, not rejected.
+ */
+@Service
+public class UserStatusService {
+
+  private final Logger log = LoggerFactory.getLogger(UserStatusService.class);
+
+  private final UserRepository userRepository;
+
+  private final PresenceRegistry presenceRegistry;
+
+  private final int chunkSize;
+
+  private final int maxUsers;
+
+  public UserStatusService(@Qualifier("userRepository") UserRepository userRepository,
+      PresenceRegistry presenceRegistry,
+      @Value("${user.bulk.chunk-size:1000}") int chunkSize,
+      @Value("${user.bulk.max-users:100000}") int maxUsers) {
+    this.userRepository = userRepository;
+    this.presenceRegistry = presenceRegistry;
+    this.chunkSize = chunkSize;
+    this.maxUsers = maxUsers;
+  }
+
+  public UserStatusUpdateReportDTO updateStatus(UserStatusUpdateDTO update) {
+    if (update.getStatus() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "status is missing");
+    }
+    List<Long> ids = distinct(update.getIds());
+    List<String> usernames = distinct(update.getUsernames());
+    if (ids.size() + usernames.size() > maxUsers) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+          String.format("the status of at most %d users can be set at once", maxUsers));
+    }
+
+    Set<Long> targets = new LinkedHashSet<>();
+    List<Long> unknownIds = new ArrayList<>();
+    for (List<Long> chunk : chunks(ids)) {
+      Set<Long> existing = new HashSet<>(userRepository.findExistingIds(chunk));
+      for (Long id : chunk) {
+        if (existing.contains(id)) {
+          targets.add(id);
+        } else {
+          unknownIds.add(id);
+        }
+      }
+    }
+
+    List<String> unknownUsernames = new ArrayList<>();
+    for (List<String> chunk : chunks(usernames)) {
+      Set<String> found = new HashSet<>();
+      for (UserSummary user : userRepository.findSummariesByUsernameIn(chunk)) {
+        found.add(user.getUsername());
+        targets.add(user.getId());
+      }
+      for (String username : chunk) {
+        if (!found.contains(username)) {
+          unknownUsernames.add(username);
+        }
+      }
+    }
+
+    int updated = 0;
+    for (List<Long> chunk : chunks(new ArrayList<>(targets))) {
+      updated += userRepository.updateStatusByIdIn(update.getStatus(), chunk);
+      presenceRegistry.applyWritten(chunk, update.getStatus());
+    }
+
+    UserStatusUpdateReportDTO report = new UserStatusUpdateReportDTO();
+    report.setUpdated(updated);
+    report.setUnknownIds(unknownIds);
+    report.setUnknownUsernames(unknownUsernames);
+    log.debug("Set {} users {}, {} identifiers unknown", updated, update.getStatus(),
+        unknownIds.size() + unknownUsernames.size());
+    return report;
+  }
+
+  private <T> List<List<T>> chunks(List<T> values) {
+    List<List<T>> chunks = new ArrayList<>();
+    for (int from = 0; from < values.size(); from += chunkSize) {
+      chunks.add(values.subList(from, Math.min(from + chunkSize, values.size())));
+    }
+    return chunks;
+  }
+
+  private static <T> List<T> distinct(Collection<T> values) {
+    if (values == null) {
+      return new ArrayList<>();
+    }
+    Set<T> distinct = new LinkedHashSet<>(values);
+    distinct.remove(null);
+    return new ArrayList<>(distinct);
+  }
+}
@@ -0,0 +1,119 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * User Token Cache
+ * Keeps a read-only snapshot of the user behind each session token, so that
+ * resolving a token does not need a database round trip. Tokens never change
+ * once they are created, but the other fields of the user do, therefore every
+ * mutation of a user has to invalidate its entry.
+ * The snapshot does not contain the password.
+ * Hit, miss and eviction counts are exported as cache metrics (name
+ * userTokenCache).
+ */
+@Component
+public class UserTokenCache implements MeterBinder {
+
+  private final Cache<UUID, User> cache;
+
+  public UserTokenCache(@Value("${user.token-cache.maximum-size:10000}") long maximumSize,
+      @Value("${user.token-cache.time-to-live:10m}") Duration timeToLive) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns a copy of the cached user for the token, or loads it with the
+   * loader on a miss. Unknown tokens (loader returns null) are not cached.
+   */
+  public User get(UUID token, Function<UUID, User> loader) {
+    User cached = cache.get(token, key -> snapshotOf(loader.apply(key)));
+    return cached == null ? null : snapshotOf(cached);
+  }
+
+  /**
+   * Returns a copy of the cached user for the token, or null on a miss.
+   */
+  public User getIfPresent(UUID token) {
+    User cached = cache.getIfPresent(token);
+    return cached == null ? null : snapshotOf(cached);
+  }
+
+  public void put(User user) {
+    cache.put(user.getToken(), snapshotOf(user));
+  }
+
+  /**
+   * Drops the entry for the token now and once more after the surrounding
+   * transaction commits, so a concurrent read cannot put the old state back
+   * before the change is visible in the database.
+   */
+  public void invalidate(UUID token) {
+    if (token == null) {
+      return;
+    }
+    cache.invalidate(token);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          cache.invalidate(token);
+        }
+      });
+    }
+  }
+
+  public long hitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long missCount() {
+    return cache.stats().missCount();
+  }
+
+  public long evictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "userTokenCache");
+  }
+
+  private static User snapshotOf(User user) {
+    if (user == null) {
+      return null;
+    }
+    User snapshot = new User();
+    snapshot.setId(user.getId());
+    snapshot.setUsername(user.getUsername());
+    snapshot.setToken(user.getToken());
+    snapshot.setStatus(user.getStatus());
+    snapshot.setCreationDate(user.getCreationDate());
+    snapshot.setBirthDate(user.getBirthDate());
+    return snapshot;
+  }
+}
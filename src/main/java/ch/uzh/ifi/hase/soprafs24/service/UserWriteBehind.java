@@ -0,0 +1,183 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.WriteDurability;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * User Write Behind
+ * Collects profile updates per user id and writes them in one transaction once
+ * user.write.batch-size users are pending or user.write.flush-interval-ms has
+ * passed. All UPDATEs of a flush are sent as a JDBC batch
+ * (hibernate.jdbc.batch_size).
+ * With user.write.profile-durability=SYNC updates are written immediately
+ * within the caller's transaction instead. Username changes are always
+ * written that way: the unique index only rejects a taken name on write, and
+ * the client has to learn about the conflict instead of the update being
+ * dropped at flush.
+ */
+@Component
+public class UserWriteBehind {
+
+  private final Logger log = LoggerFactory.getLogger(UserWriteBehind.class);
+
+  private final ConcurrentHashMap<Long, PendingUserUpdate> pending = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "user-write-behind");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final UserRepository userRepository;
+
+  private final UserTokenCache userTokenCache;
+
+  private final UserRevision userRevision;
+
+  private final UserEventBroadcaster userEventBroadcaster;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final WriteDurability profileDurability;
+
+  private final int batchSize;
+
+  public UserWriteBehind(@Qualifier("userRepository") UserRepository userRepository, UserTokenCache userTokenCache,
+      UserRevision userRevision, UserEventBroadcaster userEventBroadcaster, TransactionTemplate transactionTemplate,
+      @Value("${user.write.profile-durability:ASYNC}") WriteDurability profileDurability,
+      @Value("${user.write.batch-size:50}") int batchSize) {
+    this.userRepository = userRepository;
+    this.userTokenCache = userTokenCache;
+    this.userRevision = userRevision;
+    this.userEventBroadcaster = userEventBroadcaster;
+    this.transactionTemplate = transactionTemplate;
+    this.profileDurability = profileDurability;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Writes the update of the given (managed) user, either right away or with
+   * one of the next flushes depending on user.write.profile-durability.
+   * Renames are written right away in any case.
+   *
+   * @throws org.springframework.dao.DataIntegrityViolationException if the new username is taken
+   */
+  public void submitProfileUpdate(User user, PendingUserUpdate update) {
+    if (profileDurability == WriteDurability.SYNC || update.getUsername() != null) {
+      update.applyTo(user);
+      userRepository.saveAndFlush(user);
+      userTokenCache.invalidate(user.getToken());
+      userRevision.changed(user.getId());
+      if (update.changesProfile()) {
+        // registered for afterCommit of the caller's transaction by the broadcaster itself,
+        // a rolled back rename is never pushed
+        userEventBroadcaster.profileChanged(user);
+      }
+      return;
+    }
+
+    submit(user.getId(), update);
+  }
+
+  /**
+   * Queues the update for one of the next flushes regardless of the configured
+   * durability, for changes nobody waits for (e.g. rehashed passwords).
+   */
+  public void submit(Long userId, PendingUserUpdate update) {
+    pending.merge(userId, update, PendingUserUpdate::mergedWith);
+    if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+      flushExecutor.execute(() -> {
+        flushRequested.set(false);
+        flush();
+      });
+    }
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Writes all pending updates. If the batch fails as a whole (e.g. because one
+   * of the new usernames is taken by now) every update is retried on its own
+   * so a single bad update does not discard the others.
+   *
+   * @return the number of users written
+   */
+  @Scheduled(fixedDelayString = "${user.write.flush-interval-ms:200}")
+  public synchronized int flush() {
+    if (pending.isEmpty()) {
+      return 0;
+    }
+
+    Map<Long, PendingUserUpdate> batch = new HashMap<>();
+    for (Long id : pending.keySet()) {
+      PendingUserUpdate update = pending.remove(id);
+      if (update != null) {
+        batch.put(id, update);
+      }
+    }
+
+    try {
+      return write(batch);
+    } catch (RuntimeException e) {
+      log.warn("Writing {} user updates as one batch failed, writing them one by one", batch.size(), e);
+    }
+
+    int written = 0;
+    for (Map.Entry<Long, PendingUserUpdate> entry : batch.entrySet()) {
+      try {
+        written += write(Map.of(entry.getKey(), entry.getValue()));
+      } catch (RuntimeException e) {
+        log.error("Dropping update of user {}", entry.getKey(), e);
+      }
+    }
+    return written;
+  }
+
+  private int write(Map<Long, PendingUserUpdate> batch) {
+    List<UUID> tokens = transactionTemplate.execute(status -> {
+      List<UUID> updatedTokens = new ArrayList<>(batch.size());
+      for (User user : userRepository.findAllById(batch.keySet())) {
+        PendingUserUpdate update = batch.get(user.getId());
+        update.applyTo(user);
+        updatedTokens.add(user.getToken());
+        userRevision.changed(user.getId());
+        if (update.changesProfile()) {
+          userEventBroadcaster.profileChanged(user);
+        }
+      }
+      return updatedTokens;
+    });
+    tokens.forEach(userTokenCache::invalidate);
+    return tokens.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flushExecutor.shutdown();
+    flush();
+  }
+}
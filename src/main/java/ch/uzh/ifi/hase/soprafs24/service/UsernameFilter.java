@@ -0,0 +1,165 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Username Filter
+ * A Bloom filter over all usernames that ever existed in the USER table. If
+ * mightContain returns false the username certainly does not exist and the
+ * database lookup can be skipped (login of an unknown user, registration and
+ * availability checks of a free name); true only means "possibly", the
+ * database has the final answer.
+ * The filter is filled from the UserRepository once the application is ready
+ * and answers true for every name until then. Usernames are added before a
+ * user is created or renamed; names that are given up stay in the filter,
+ * which only costs a false positive. The size follows from
+ * user.username-filter.expected-usernames and false-positive-rate; more users
+ * than expected raise the false positive rate but never cause a wrong miss.
+ */
+@Component
+public class UsernameFilter implements MeterBinder {
+
+  private final Logger log = LoggerFactory.getLogger(UsernameFilter.class);
+
+  private final UserRepository userRepository;
+
+  private final TransactionTemplate readOnlyTransaction;
+
+  private final AtomicLongArray bits;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  private final AtomicLong bitsSet = new AtomicLong();
+
+  private final AtomicLong definiteMisses = new AtomicLong();
+
+  private volatile boolean warm;
+
+  @Autowired
+  public UsernameFilter(@Qualifier("userRepository") UserRepository userRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${user.username-filter.expected-usernames:1000000}") long expectedUsernames,
+      @Value("${user.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+    this.userRepository = userRepository;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+
+    double ln2 = Math.log(2);
+    long bitsNeeded = (long) Math.ceil(-expectedUsernames * Math.log(falsePositiveRate) / (ln2 * ln2));
+    int words = (int) Math.max(1, (bitsNeeded + 63) / 64);
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = words * 64L;
+    this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedUsernames * ln2));
+  }
+
+  /**
+   * Fills the filter with the usernames of the USER table. Users created
+   * meanwhile are added by add(), so nothing is missed.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warm() {
+    long start = System.nanoTime();
+    AtomicLong count = new AtomicLong();
+    readOnlyTransaction.executeWithoutResult(status -> {
+      try (Stream<String> usernames = userRepository.streamUsernames()) {
+        usernames.forEach(username -> {
+          add(username);
+          count.incrementAndGet();
+        });
+      }
+    });
+    warm = true;
+    log.info("Loaded {} usernames into the username filter in {} ms", count,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  public void add(String username) {
+    if (username == null) {
+      return;
+    }
+    long hash1 = hash(username, 0L);
+    long hash2 = hash(username, 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      setBit(Math.floorMod(hash1 + i * hash2, bitCount));
+    }
+  }
+
+  /**
+   * @return false if the username certainly does not exist
+   */
+  public boolean mightContain(String username) {
+    if (!warm || username == null) {
+      return true;
+    }
+    long hash1 = hash(username, 0L);
+    long hash2 = hash(username, 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        definiteMisses.incrementAndGet();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("users.username-filter.false-positive-rate", this,
+        filter -> Math.pow((double) filter.bitsSet.get() / filter.bitCount, filter.hashCount))
+        .description("Estimated false positive rate of the username filter").register(registry);
+    FunctionCounter.builder("users.username-filter.misses", definiteMisses, AtomicLong::get)
+        .description("Username lookups answered by the username filter without the database").register(registry);
+  }
+
+  private void setBit(long bit) {
+    int word = (int) (bit >>> 6);
+    long mask = 1L << bit;
+    while (true) {
+      long current = bits.get(word);
+      if ((current & mask) != 0) {
+        return;
+      }
+      if (bits.compareAndSet(word, current, current | mask)) {
+        bitsSet.incrementAndGet();
+        return;
+      }
+    }
+  }
+
+  // 64-bit FNV-1a over the UTF-16 chars, finished with the murmur3 mixer
+  private static long hash(String value, long seed) {
+    long hash = 0xcbf29ce484222325L ^ seed;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
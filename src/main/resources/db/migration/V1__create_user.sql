@@ -0,0 +1,18 @@
+-- USER table as mapped by ch.uzh.ifi.hase.soprafs24.entity.User.
+-- username and token are looked up on every registration, login, offline
+-- toggle and token fetch, hence the named unique indexes.
+CREATE SEQUENCE USER_ID_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE USER (
+  ID            BIGINT       NOT NULL,
+  PASSWORD      VARCHAR(255) NOT NULL,
+  USERNAME      VARCHAR(255) NOT NULL,
+  TOKEN         VARCHAR(255) NOT NULL,
+  STATUS        INTEGER      NOT NULL,
+  CREATION_DATE DATE         NOT NULL,
+  BIRTH_DATE    DATE,
+  CONSTRAINT PK_USER PRIMARY KEY (ID)
+);
+
+CREATE UNIQUE INDEX IDX_USER_USERNAME ON USER (USERNAME);
+CREATE UNIQUE INDEX IDX_USER_TOKEN ON USER (TOKEN);
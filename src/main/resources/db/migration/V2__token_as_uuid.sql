@@ -0,0 +1,4 @@
+-- Tokens are random UUIDs. As native UUIDs they take 16 bytes (two longs)
+-- in the row and in IDX_USER_TOKEN instead of a 36-character string; the
+-- existing values are converted from their text form.
+ALTER TABLE USER ALTER COLUMN TOKEN UUID NOT NULL;
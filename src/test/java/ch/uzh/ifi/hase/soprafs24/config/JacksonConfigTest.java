@@ -0,0 +1,56 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserToDisplayClientVersionDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonConfigTest {
+
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+      .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+      .withUserConfiguration(JacksonConfig.class, DtoCodecs.class);
+
+  @Test
+  public void afterburnerRegistered_datesWrittenAsIsoStrings() {
+    contextRunner.run(context -> {
+      ObjectMapper mapper = context.getBean(ObjectMapper.class);
+      assertTrue(mapper.getRegisteredModuleIds().contains(new AfterburnerModule().getTypeId()));
+
+      UserToDisplayClientVersionDTO user = new UserToDisplayClientVersionDTO();
+      user.setId(1L);
+      user.setBirthDate(LocalDate.of(2000, 1, 1));
+      String json = context.getBean(DtoCodecs.class).writerFor(UserToDisplayClientVersionDTO.class)
+          .writeValueAsString(user);
+
+      assertTrue(json.contains("\"birthDate\":\"2000-01-01\""), json);
+      assertEquals(user.getBirthDate(),
+          mapper.readValue(json, UserToDisplayClientVersionDTO.class).getBirthDate());
+    });
+  }
+
+  @Test
+  public void afterburnerDisabled_notRegistered() {
+    contextRunner.withPropertyValues("user.jackson.afterburner=false").run(context -> {
+      ObjectMapper mapper = context.getBean(ObjectMapper.class);
+      assertFalse(mapper.getRegisteredModuleIds().contains(new AfterburnerModule().getTypeId()));
+    });
+  }
+
+  @Test
+  public void writerForSameType_isCached() {
+    contextRunner.run(context -> {
+      DtoCodecs codecs = context.getBean(DtoCodecs.class);
+      assertSame(codecs.writerFor(UserToDisplayClientVersionDTO.class),
+          codecs.writerFor(UserToDisplayClientVersionDTO.class));
+    });
+  }
+}
@@ -0,0 +1,27 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import ch.uzh.ifi.hase.soprafs24.service.PresenceWriteBehind;
+import ch.uzh.ifi.hase.soprafs24.service.UserService;
+import ch.uzh.ifi.hase.soprafs24.service.UserTokenCache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupConfigTest {
+
+  private final LazyInitializationExcludeFilter filter = StartupConfig.backgroundWorkExcludeFilter();
+
+  @Test
+  public void scheduledBeansAndMeterBinders_areCreatedEagerly() {
+    assertTrue(filter.isExcluded("presenceWriteBehind", null, PresenceWriteBehind.class));
+    assertTrue(filter.isExcluded("userTokenCache", null, UserTokenCache.class));
+  }
+
+  @Test
+  public void otherBeans_areLazy() {
+    assertFalse(filter.isExcluded("userService", null, UserService.class));
+    assertFalse(filter.isExcluded("unknown", null, null));
+  }
+}
@@ -0,0 +1,231 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+import ch.uzh.ifi.hase.soprafs24.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs24.service.ReactiveUserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Date;
+import java.util.UUID;
+
+import static org.mockito.BDDMockito.given;
+
+/**
+ * ReactiveUserControllerTest
+ * Runs the scenarios of the UserControllerTest against the reactive stack, so
+ * both variants of the API stay in line.
+ */
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+@Import(PresenceRegistry.class)
+public class ReactiveUserControllerTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  private PresenceRegistry presenceRegistry;
+
+  @MockBean
+  private ReactiveUserService reactiveUserService;
+
+  @Test
+  public void givenUsers_whenGetUsers_thenReturnJsonArray() {
+    // given
+    User user = new User();
+    user.setPassword("Firstname Lastname");
+    user.setUsername("firstname lastname");
+    user.setStatus(UserStatus.OFFLINE);
+    user.setCreationDate(new Date(1));
+    user.setBirthDate(null);
+
+    given(reactiveUserService.getUsers()).willReturn(Flux.just(user));
+
+    // when/then
+    webTestClient.get().uri("/users").accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].username").isEqualTo(user.getUsername())
+        .jsonPath("$[0].status").isEqualTo(user.getStatus().toString());
+  }
+
+  @Test
+  public void createUser_validInput_userCreated() {
+    // given
+    User user = new User();
+    user.setPassword("123");
+    user.setUsername("FirstName LastName");
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.OFFLINE);
+    user.setCreationDate(new Date(1));
+    user.setBirthDate(null);
+
+    UsernamePasswordDTO userPostDTO = new UsernamePasswordDTO();
+    userPostDTO.setPassword("Test User");
+    userPostDTO.setUsername("testUsername");
+
+    given(reactiveUserService.createUser(Mockito.any())).willReturn(Mono.just(user));
+
+    // when/then
+    webTestClient.post().uri("/users")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(userPostDTO)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.id").isEqualTo(user.getId())
+        .jsonPath("$.username").isEqualTo(user.getUsername())
+        .jsonPath("$.status").isEqualTo(user.getStatus().toString());
+  }
+
+  @Test
+  public void givenId_whenGetUsers_thenReturnJsonArray() {
+    // given
+    User user = new User();
+    user.setPassword("Firstname Lastname");
+    user.setUsername("firstname lastname");
+    user.setStatus(UserStatus.OFFLINE);
+    user.setCreationDate(new Date(1));
+    user.setBirthDate(null);
+
+    given(reactiveUserService.findUserToDisplayById(Mockito.anyLong())).willReturn(Mono.just(user));
+
+    // when/then
+    webTestClient.get().uri("/users/1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.id").isEqualTo(user.getId())
+        .jsonPath("$.username").isEqualTo(user.getUsername())
+        .jsonPath("$.status").isEqualTo(user.getStatus().toString());
+  }
+
+  @Test
+  public void givenId_whenPutUsers_thenReturnJsonArray() {
+    // given
+    given(reactiveUserService.saveUserNameBirthDate(Mockito.any(), Mockito.anyLong())).willReturn(Mono.empty());
+
+    // when/then
+    webTestClient.put().uri("/users/1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("{\"inputUsername\":\"newUsername\", \"inputBirthDate\":\"2000-01-01\", \"currentUsername\":\"currentUsername\"}")
+        .exchange()
+        .expectStatus().isNoContent();
+  }
+
+  @Test
+  public void givenCorrectPassword_whenLogin_thenReturnOnlineUser() {
+    // given
+    User user = new User();
+    user.setId(3L);
+    user.setUsername("testUsername");
+    user.setToken(UUID.randomUUID());
+    user.setCreationDate(new Date(1));
+
+    UsernamePasswordDTO userPostDTO = new UsernamePasswordDTO();
+    userPostDTO.setPassword("testPassword");
+    userPostDTO.setUsername("testUsername");
+
+    // the service marks the user online on a successful login
+    given(reactiveUserService.checkLoginCorrect(Mockito.any())).willAnswer(invocation -> {
+      presenceRegistry.markOnline(user.getId());
+      return Mono.just(user);
+    });
+
+    // when/then
+    webTestClient.post().uri("/usersLogin")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(userPostDTO)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.id").isEqualTo(3)
+        .jsonPath("$.username").isEqualTo(user.getUsername())
+        .jsonPath("$.token").isEqualTo(user.getToken().toString())
+        .jsonPath("$.status").isEqualTo(UserStatus.ONLINE.toString());
+  }
+
+  @Test
+  public void givenWrongPassword_whenLogin_thenBadRequest() {
+    // given
+    UsernamePasswordDTO userPostDTO = new UsernamePasswordDTO();
+    userPostDTO.setPassword("wrongPassword");
+    userPostDTO.setUsername("testUsername");
+
+    given(reactiveUserService.checkLoginCorrect(Mockito.any()))
+        .willReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "login failed")));
+
+    // when/then
+    webTestClient.post().uri("/usersLogin")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(userPostDTO)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void givenKnownToken_whenFetchByToken_thenReturnUser() {
+    // given
+    User user = new User();
+    user.setId(4L);
+    user.setUsername("testUsername");
+    user.setToken(UUID.randomUUID());
+    user.setCreationDate(new Date(1));
+
+    given(reactiveUserService.fetchUserFromToken(user.getToken())).willReturn(Mono.just(user));
+
+    // when/then
+    webTestClient.post().uri("/fetchByToken")
+        .header(UserController.TOKEN_HEADER, user.getToken().toString())
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.id").isEqualTo(4)
+        .jsonPath("$.username").isEqualTo(user.getUsername())
+        .jsonPath("$.token").isEqualTo(user.getToken().toString());
+  }
+
+  @Test
+  public void givenUnknownToken_whenFetchByToken_thenNotFound() {
+    // given
+    UUID token = UUID.randomUUID();
+    given(reactiveUserService.fetchUserFromToken(token)).willReturn(Mono.empty());
+
+    // when/then
+    webTestClient.post().uri("/fetchByToken")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("{\"token\":\"" + token + "\"}")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void givenUnknownUsername_whenSetUserOffline_thenNotFound() {
+    // given
+    given(reactiveUserService.setUserOffline("unknownUsername"))
+        .willReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "user with username was not found")));
+
+    // when/then
+    webTestClient.post().uri("/setUserOffline")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("{\"username\":\"unknownUsername\"}")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+}
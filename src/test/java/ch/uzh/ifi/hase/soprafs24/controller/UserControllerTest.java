@@ -1,35 +1,66 @@
 package ch.uzh.ifi.hase.soprafs24.controller;
 
+import ch.uzh.ifi.hase.soprafs24.config.DtoCodecs;
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+import ch.uzh.ifi.hase.soprafs24.service.PasswordHasher;
+import ch.uzh.ifi.hase.soprafs24.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs24.service.UserEventBroadcaster;
+import ch.uzh.ifi.hase.soprafs24.service.UserImportService;
+import ch.uzh.ifi.hase.soprafs24.service.UserStatusService;
+import ch.uzh.ifi.hase.soprafs24.service.RateLimiter;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserImportReportDTO;
+import ch.uzh.ifi.hase.soprafs24.service.UserRevision;
 import ch.uzh.ifi.hase.soprafs24.service.UserService;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.sql.Date;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -38,26 +69,40 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * request without actually sending them over the network.
  * This tests if the UserController works.
  */
-@WebMvcTest(UserController.class)
+@WebMvcTest(value = UserController.class, properties = "user.bulk.max-users=2")
+@Import({ PresenceRegistry.class, UserRevision.class, DtoCodecs.class })
 public class UserControllerTest {
 
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private PresenceRegistry presenceRegistry;
+
   @MockBean
   private UserService userService;
 
+  @MockBean
+  private PasswordHasher passwordHasher;
+
+  @MockBean
+  private UserEventBroadcaster userEventBroadcaster;
+
+  @MockBean
+  private UserImportService userImportService;
+
+  @MockBean
+  private UserStatusService userStatusService;
+
+  @MockBean
+  private RateLimiter rateLimiter;
+
   @Test
   public void givenUsers_whenGetUsers_thenReturnJsonArray() throws Exception {
     // given
-    User user = new User();
-    user.setPassword("Firstname Lastname");
-    user.setUsername("firstname lastname");
-    user.setStatus(UserStatus.OFFLINE);
-    user.setCreationDate(new Date(1));
-    user.setBirthDate(null);
+    UserSummary user = new UserSummary(1L, "firstname lastname", UUID.randomUUID());
 
-    List<User> allUsers = Collections.singletonList(user);
+    List<UserSummary> allUsers = Collections.singletonList(user);
 
     // this mocks the UserService -> we define above what the userService should
     // return when getUsers() is called
@@ -70,7 +115,212 @@ public class UserControllerTest {
     mockMvc.perform(getRequest).andExpect(status().isOk())
         .andExpect(jsonPath("$", hasSize(1)))
         .andExpect(jsonPath("$[0].username", is(user.getUsername())))
-        .andExpect(jsonPath("$[0].status", is(user.getStatus().toString())));
+        .andExpect(jsonPath("$[0].status", is(UserStatus.OFFLINE.toString())));
+  }
+
+  @Test
+  public void givenRequestId_whenGetUsers_thenRequestIdEchoed() throws Exception {
+    given(userService.getUsers()).willReturn(Collections.emptyList());
+
+    mockMvc.perform(get("/users").header("X-Request-Id", "abc123"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Request-Id", "abc123"));
+
+    // without a header an id is generated
+    mockMvc.perform(get("/users"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("X-Request-Id"));
+  }
+
+  @Test
+  public void givenCurrentETag_whenGetUsers_thenNotModifiedWithoutServiceCall() throws Exception {
+    given(userService.getUsers()).willReturn(Collections.emptyList());
+
+    String eTag = mockMvc.perform(get("/users"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("Last-Modified"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/users").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", eTag));
+
+    Mockito.verify(userService, Mockito.times(1)).getUsers();
+  }
+
+  @Test
+  public void givenOtherFormat_whenGetUsersWithETag_thenWeakETagPerFormat() throws Exception {
+    given(userService.getUsers()).willReturn(Collections.emptyList());
+
+    String jsonETag = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Vary", containsString("Accept")))
+        .andReturn().getResponse().getHeader("ETag");
+    String cborETag = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_CBOR))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+
+    assertTrue(jsonETag.startsWith("W/\""), jsonETag);
+    assertNotEquals(jsonETag, cborETag);
+
+    // a cached JSON body must not be revalidated for a CBOR request
+    mockMvc.perform(get("/users").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", jsonETag))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/users").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborETag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("Vary", containsString("Accept")));
+  }
+
+  @Test
+  public void givenChange_whenGetUserWithOldETag_thenReturnUser() throws Exception {
+    UserProfile user = new UserProfile(5L, "username", new Date(1), null);
+    given(userService.findUserToDisplayById(5L)).willReturn(user);
+
+    String eTag = mockMvc.perform(get("/users/5"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/users/5").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    // going online changes the representation
+    presenceRegistry.markOnline(5L);
+
+    mockMvc.perform(get("/users/5").header("If-None-Match", eTag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status", is(UserStatus.ONLINE.toString())));
+
+    Mockito.verify(userService, Mockito.times(2)).findUserToDisplayById(5L);
+  }
+
+  @Test
+  public void givenFullPage_whenGetUsersWithLimit_thenReturnPageAndNextCursor() throws Exception {
+    // given
+    UserSummary first = new UserSummary(3L, "first", UUID.randomUUID());
+    UserSummary second = new UserSummary(7L, "second", UUID.randomUUID());
+
+    given(userService.getUsersAfter(2L, 2)).willReturn(Arrays.asList(first, second));
+
+    // when
+    MockHttpServletRequestBuilder getRequest = get("/users").param("after", "2").param("limit", "2");
+
+    // then
+    mockMvc.perform(getRequest).andExpect(status().isOk())
+        .andExpect(header().string("X-Next-Cursor", "7"))
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].username", is(first.getUsername())))
+        .andExpect(jsonPath("$[1].username", is(second.getUsername())));
+  }
+
+  @Test
+  public void givenLastPage_whenGetUsersWithLimit_thenNoNextCursor() throws Exception {
+    // given
+    UserSummary user = new UserSummary(3L, "last", UUID.randomUUID());
+
+    given(userService.getUsersAfter(0L, 100)).willReturn(Collections.singletonList(user));
+
+    // when
+    MockHttpServletRequestBuilder getRequest = get("/users").param("limit", "100");
+
+    // then
+    mockMvc.perform(getRequest).andExpect(status().isOk())
+        .andExpect(header().doesNotExist("X-Next-Cursor"))
+        .andExpect(jsonPath("$", hasSize(1)));
+  }
+
+  @Test
+  public void givenUsers_whenStreamUsersAsNdjson_thenOneObjectPerLine() throws Exception {
+    // given
+    UserSummary first = new UserSummary(1L, "first", null);
+    UserSummary second = new UserSummary(2L, "second", null);
+
+    presenceRegistry.markOnline(first.getId());
+    presenceRegistry.markOffline(second.getId());
+
+    doAnswer(invocation -> {
+      Consumer<UserSummary> consumer = invocation.getArgument(0);
+      consumer.accept(first);
+      consumer.accept(second);
+      return null;
+    }).when(userService).streamUsers(Mockito.any());
+
+    // when
+    MvcResult result = mockMvc.perform(get("/users").param("stream", "ndjson"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    // then
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string(
+            "{\"id\":1,\"username\":\"first\",\"status\":\"ONLINE\",\"token\":null}\n"
+                + "{\"id\":2,\"username\":\"second\",\"status\":\"OFFLINE\",\"token\":null}\n"));
+  }
+
+  @Test
+  public void whenGetUserEvents_thenEventStreamStarted() throws Exception {
+    given(userEventBroadcaster.subscribe()).willReturn(new SseEmitter());
+
+    mockMvc.perform(get("/users/events").accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(request().asyncStarted());
+
+    Mockito.verify(userEventBroadcaster).subscribe();
+    Mockito.verify(userService, Mockito.never()).findUserToDisplayById(Mockito.anyLong());
+  }
+
+  @Test
+  public void givenNdjsonAndArray_whenImportUsers_thenAllEntriesPassedOn() throws Exception {
+    UserImportReportDTO report = new UserImportReportDTO();
+    report.setCreated(2);
+    given(userImportService.importUsers(Mockito.anyList())).willReturn(report);
+
+    MvcResult ndjsonResult = mockMvc.perform(post("/users/bulk").contentType("application/x-ndjson")
+        .content("{\"username\":\"a\",\"password\":\"1\"}\n{\"username\":\"b\",\"password\":\"2\"}\n"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(ndjsonResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created", is(2)));
+
+    MvcResult arrayResult = mockMvc.perform(post("/users/bulk").contentType(MediaType.APPLICATION_JSON)
+        .content("[{\"username\":\"a\",\"password\":\"1\"},{\"username\":\"b\",\"password\":\"2\"}]"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(arrayResult))
+        .andExpect(status().isOk());
+
+    Mockito.verify(userImportService, Mockito.times(2))
+        .importUsers(Mockito.argThat(users -> users.size() == 2 && "b".equals(users.get(1).getUsername())));
+  }
+
+  @Test
+  public void givenMoreThanMaxUsers_whenImportUsers_thenPayloadTooLargeWithoutImport() throws Exception {
+    mockMvc.perform(post("/users/bulk").contentType("application/x-ndjson")
+        .content("{\"username\":\"a\",\"password\":\"1\"}\n{\"username\":\"b\",\"password\":\"2\"}\n"
+            + "{\"username\":\"c\",\"password\":\"3\"}\n{\"username\":"))
+        .andExpect(status().isPayloadTooLarge());
+
+    Mockito.verifyNoInteractions(userImportService);
+  }
+
+  @Test
+  public void givenMalformedBody_whenImportUsers_thenBadRequest() throws Exception {
+    mockMvc.perform(post("/users/bulk").contentType(MediaType.APPLICATION_JSON).content("[{\"username\":"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void givenIpOverLimit_whenImportUsers_thenTooManyRequestsWithoutImport() throws Exception {
+    given(rateLimiter.tryAcquire(Mockito.eq("import"), Mockito.eq(RateLimiter.PER_IP), Mockito.anyString()))
+        .willReturn(TimeUnit.SECONDS.toNanos(12));
+
+    mockMvc.perform(post("/users/bulk").contentType(MediaType.APPLICATION_JSON)
+        .content("[{\"username\":\"a\",\"password\":\"1\"}]"))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "12"));
+
+    Mockito.verifyNoInteractions(userImportService);
   }
 
   @Test
@@ -79,7 +329,7 @@ public class UserControllerTest {
     User user = new User();
     user.setPassword("123");
     user.setUsername("FirstName LastName");
-    user.setToken("1");
+    user.setToken(UUID.randomUUID());
     user.setStatus(UserStatus.OFFLINE);
     user.setCreationDate(new Date(1));
     user.setBirthDate(null);
@@ -88,7 +338,8 @@ public class UserControllerTest {
     userPostDTO.setPassword("Test User");
     userPostDTO.setUsername("testUsername");
 
-    given(userService.createUser(Mockito.any())).willReturn(user);
+    given(passwordHasher.hash(userPostDTO.getPassword())).willReturn(CompletableFuture.completedFuture("hash"));
+    given(userService.createUser(Mockito.any(), Mockito.eq("hash"))).willReturn(user);
 
     // when/then -> do the request + validate the result
     MockHttpServletRequestBuilder postRequest = post("/users")
@@ -96,22 +347,104 @@ public class UserControllerTest {
         .content(asJsonString(userPostDTO));
 
     // then
-    mockMvc.perform(postRequest)
+    MvcResult result = mockMvc.perform(postRequest)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isCreated())
         .andExpect(jsonPath("$.id", is(user.getId())))
         .andExpect(jsonPath("$.username", is(user.getUsername())))
         .andExpect(jsonPath("$.status", is(user.getStatus().toString())));
   }
 
+  @Test
+  public void createUser_takenUsername_conflictWithoutHashing() throws Exception {
+    UsernamePasswordDTO userPostDTO = new UsernamePasswordDTO();
+    userPostDTO.setPassword("password");
+    userPostDTO.setUsername("taken");
+
+    Mockito.doThrow(new ResponseStatusException(HttpStatus.CONFLICT)).when(userService).checkIfUserExists("taken");
+
+    mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(asJsonString(userPostDTO)))
+        .andExpect(status().isConflict());
+
+    Mockito.verifyNoInteractions(passwordHasher);
+    Mockito.verify(userService, Mockito.never()).createUser(Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  public void givenUsernameOverLimit_whenLogin_thenTooManyRequestsWithoutServiceCall() throws Exception {
+    UsernamePasswordDTO userPostDTO = new UsernamePasswordDTO();
+    userPostDTO.setPassword("wrong");
+    userPostDTO.setUsername("victim");
+    given(rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "victim"))
+        .willReturn(TimeUnit.MILLISECONDS.toNanos(1500));
+
+    mockMvc.perform(post("/usersLogin").contentType(MediaType.APPLICATION_JSON).content(asJsonString(userPostDTO)))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+
+    Mockito.verify(rateLimiter).tryAcquire(Mockito.eq("login"), Mockito.eq(RateLimiter.PER_IP), Mockito.anyString());
+    Mockito.verifyNoInteractions(userService);
+  }
+
+  @Test
+  public void givenAcceptNdjson_whenGetUsers_thenOneUserPerLine() throws Exception {
+    given(userService.getUsers()).willReturn(Arrays.asList(
+        new UserSummary(1L, "first", null), new UserSummary(2L, "second", null)));
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.markOffline(2L);
+
+    mockMvc.perform(get("/users").accept("application/x-ndjson"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+        .andExpect(content().string(
+            "{\"id\":1,\"username\":\"first\",\"status\":\"ONLINE\",\"token\":null}\n"
+                + "{\"id\":2,\"username\":\"second\",\"status\":\"OFFLINE\",\"token\":null}\n"));
+  }
+
+  @Test
+  public void givenAcceptCbor_whenGetUsers_thenCborBody() throws Exception {
+    given(userService.getUsers()).willReturn(Collections.singletonList(new UserSummary(1L, "first", UUID.randomUUID())));
+
+    MvcResult result = mockMvc.perform(get("/users").accept("application/cbor"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+        .andReturn();
+
+    JsonNode users = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+    assertEquals(1, users.size());
+    assertEquals("first", users.get(0).get("username").asText());
+  }
+
+  @Test
+  public void givenNoAccept_whenGetUsers_thenJson() throws Exception {
+    given(userService.getUsers()).willReturn(Collections.singletonList(new UserSummary(1L, "first", UUID.randomUUID())));
+
+    mockMvc.perform(get("/users"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void givenUsername_whenCheckAvailability_thenReturnAvailability() throws Exception {
+    given(userService.isUsernameAvailable("free")).willReturn(true);
+    given(userService.isUsernameAvailable("taken")).willReturn(false);
+
+    mockMvc.perform(get("/users/available").param("username", "free"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.username", is("free")))
+        .andExpect(jsonPath("$.available", is(true)));
+    mockMvc.perform(get("/users/available").param("username", "taken"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.available", is(false)));
+  }
+
   @Test
   public void givenId_whenGetUsers_thenReturnJsonArray() throws Exception {
     // given
-    User user = new User();
-    user.setPassword("Firstname Lastname");
-    user.setUsername("firstname lastname");
-    user.setStatus(UserStatus.OFFLINE);
-    user.setCreationDate(new Date(1));
-    user.setBirthDate(null);
+    UserProfile user = new UserProfile(1L, "firstname lastname", new Date(1), null);
 
     // this mocks the UserService -> we define above what the userService should
     // return when getUsers() is called
@@ -123,9 +456,20 @@ public class UserControllerTest {
     // then
     mockMvc.perform(getRequest).andExpect(status().isOk())
     .andExpect(status().isOk())
-    .andExpect(jsonPath("$.id", is(user.getId())))
+    .andExpect(jsonPath("$.id", is(user.getId().intValue())))
     .andExpect(jsonPath("$.username", is(user.getUsername())))
-    .andExpect(jsonPath("$.status", is(user.getStatus().toString())));
+    .andExpect(jsonPath("$.status", is(UserStatus.OFFLINE.toString())));
+  }
+
+  @Test
+  public void givenDates_whenGetUser_thenIsoLocalDates() throws Exception {
+    UserProfile user = new UserProfile(1L, "username", Date.valueOf("2024-02-29"), Date.valueOf("2000-01-01"));
+    given(userService.findUserToDisplayById(1L)).willReturn(user);
+
+    mockMvc.perform(get("/users/1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.creationDate", is("2024-02-29")))
+        .andExpect(jsonPath("$.birthDate", is("2000-01-01")));
   }
 
   @Test
@@ -153,6 +497,53 @@ public class UserControllerTest {
   }
 
 
+  @Test
+  public void givenTokenAsObjectStringOrHeader_whenFetchByToken_thenReturnUser() throws Exception {
+    User user = new User();
+    user.setId(7L);
+    user.setUsername("tokenUser");
+    user.setToken(UUID.randomUUID());
+    given(userService.fetchUserFromToken(user.getToken())).willReturn(user);
+
+    mockMvc.perform(post("/fetchByToken").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"token\":\"" + user.getToken() + "\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.token", is(user.getToken().toString())));
+    // the bare JSON string of older clients
+    mockMvc.perform(post("/fetchByToken").contentType(MediaType.APPLICATION_JSON)
+        .content("\"" + user.getToken() + "\""))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.username", is("tokenUser")));
+    mockMvc.perform(post("/fetchByToken").header(UserController.TOKEN_HEADER, user.getToken().toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.id", is(7)));
+
+    Mockito.verify(userService, Mockito.times(3)).fetchUserFromToken(user.getToken());
+    assertEquals(UserStatus.ONLINE, presenceRegistry.statusOf(7L));
+  }
+
+  @Test
+  public void givenMalformedOrUnknownToken_whenFetchByToken_thenBadRequestOrNotFound() throws Exception {
+    mockMvc.perform(post("/fetchByToken").contentType(MediaType.APPLICATION_JSON).content("\"not-a-token\""))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(post("/fetchByToken").contentType(MediaType.APPLICATION_JSON).content("{}"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(post("/fetchByToken"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(post("/fetchByToken").header(UserController.TOKEN_HEADER, UUID.randomUUID().toString()))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void givenUsernameAsObjectOrString_whenSetUserOffline_thenServiceCalledWithName() throws Exception {
+    mockMvc.perform(post("/setUserOffline").contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"name\"}"))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(post("/setUserOffline").contentType(MediaType.APPLICATION_JSON).content("\"name\""))
+        .andExpect(status().isNoContent());
+
+    Mockito.verify(userService, Mockito.times(2)).fetchUserFromUsername("name");
+  }
+
   /**
    * Helper Method to convert userPostDTO into a JSON string such that the input
    * can be processed
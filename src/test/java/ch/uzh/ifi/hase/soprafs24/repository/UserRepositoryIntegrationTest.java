@@ -2,15 +2,22 @@ package ch.uzh.ifi.hase.soprafs24.repository;
 
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserProfile;
+import ch.uzh.ifi.hase.soprafs24.repository.projection.UserSummary;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.sql.Date;
+import java.util.List;
+import java.util.UUID;
 
 @DataJpaTest
 public class UserRepositoryIntegrationTest {
@@ -28,7 +35,7 @@ public class UserRepositoryIntegrationTest {
     user.setPassword("123");
     user.setUsername("Firstname Lastname");
     user.setStatus(UserStatus.OFFLINE);
-    user.setToken("1");
+    user.setToken(UUID.randomUUID());
     user.setCreationDate(new Date(1));
     user.setBirthDate(new Date(1));
 
@@ -46,4 +53,54 @@ public class UserRepositoryIntegrationTest {
     assertEquals(found.getStatus(), user.getStatus());
     assertEquals(found.getCreationDate(), user.getCreationDate());
   }
+
+  @Test
+  public void findSummariesAfter_returnsNextPageInIdOrder() {
+    // given
+    User first = persistUser("first", UUID.randomUUID());
+    User second = persistUser("second", UUID.randomUUID());
+    User third = persistUser("third", UUID.randomUUID());
+
+    // when
+    List<UserSummary> page = userRepository.findSummariesAfter(first.getId(), PageRequest.of(0, 2));
+
+    // then
+    assertEquals(2, page.size());
+    assertEquals(second.getId(), page.get(0).getId());
+    assertEquals(second.getToken(), page.get(0).getToken());
+    assertEquals(third.getId(), page.get(1).getId());
+  }
+
+  @Test
+  public void findProfileById_returnsUnmanagedProjection() {
+    // given
+    User user = persistUser("profile", UUID.randomUUID());
+    user.setBirthDate(new Date(2));
+    entityManager.flush();
+    entityManager.clear();
+
+    // when
+    UserProfile profile = userRepository.findProfileById(user.getId());
+
+    // then
+    assertEquals(user.getUsername(), profile.getUsername());
+    assertEquals(user.getCreationDate(), profile.getCreationDate());
+    assertEquals(user.getBirthDate(), profile.getBirthDate());
+    // no entity was loaded into the persistence context
+    assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    assertNull(userRepository.findProfileById(user.getId() + 1));
+  }
+
+  private User persistUser(String username, UUID token) {
+    User user = new User();
+    user.setPassword("123");
+    user.setUsername(username);
+    user.setStatus(UserStatus.OFFLINE);
+    user.setToken(token);
+    user.setCreationDate(new Date(1));
+
+    entityManager.persist(user);
+    entityManager.flush();
+    return user;
+  }
 }
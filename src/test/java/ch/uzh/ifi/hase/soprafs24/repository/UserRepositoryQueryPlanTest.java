@@ -0,0 +1,137 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every lookup of the UserRepository, captures the SQL Hibernate
+ * generated for it and checks with H2's EXPLAIN that it is answered from an
+ * index. Fails if a schema or query change turns a lookup into a table scan.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ch.uzh.ifi.hase.soprafs24.repository.UserRepositoryQueryPlanTest$RecordingStatementInspector",
+    // every lookup has to reach the database
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+public class UserRepositoryQueryPlanTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    user = new User();
+    user.setPassword("123");
+    user.setUsername("username");
+    user.setStatus(UserStatus.OFFLINE);
+    user.setToken(UUID.randomUUID());
+    user.setCreationDate(new Date(1));
+    entityManager.persist(user);
+    entityManager.flush();
+    entityManager.clear();
+    RecordingStatementInspector.STATEMENTS.clear();
+  }
+
+  @Test
+  public void findByUsername_usesUsernameIndex() {
+    userRepository.findByUsername("username");
+
+    assertIndexUsed("IDX_USER_USERNAME", statementFilteringBy("username"), "username");
+  }
+
+  @Test
+  public void findByToken_usesTokenIndex() {
+    userRepository.findByToken(user.getToken());
+
+    assertIndexUsed("IDX_USER_TOKEN", statementFilteringBy("token"), user.getToken());
+  }
+
+  @Test
+  public void findById_usesPrimaryKey() {
+    userRepository.findById(user.getId().longValue());
+
+    assertIndexUsed("PRIMARY_KEY", statementFilteringBy("id"), user.getId());
+  }
+
+  @Test
+  public void findSummariesAfter_usesPrimaryKey() {
+    userRepository.findSummariesAfter(0L, PageRequest.of(0, 10));
+
+    assertIndexUsed("PRIMARY_KEY", lastStatement(), 0L, 10);
+  }
+
+  @Test
+  public void findProfileById_usesPrimaryKey() {
+    userRepository.findProfileById(user.getId());
+
+    assertIndexUsed("PRIMARY_KEY", lastStatement(), user.getId());
+  }
+
+  @Test
+  public void updateStatusByIdIn_usesPrimaryKey() {
+    userRepository.updateStatusByIdIn(UserStatus.ONLINE, Arrays.asList(user.getId(), user.getId() + 1));
+
+    assertIndexUsed("PRIMARY_KEY", lastStatement(), UserStatus.ONLINE.ordinal(), user.getId(), user.getId() + 1);
+  }
+
+  private String lastStatement() {
+    List<String> statements = RecordingStatementInspector.STATEMENTS;
+    assertFalse(statements.isEmpty(), "no SQL was executed");
+    return statements.get(statements.size() - 1);
+  }
+
+  // the natural-id lookup by username runs two statements, username -> id and id -> user
+  private String statementFilteringBy(String column) {
+    for (String statement : RecordingStatementInspector.STATEMENTS) {
+      if (statement.contains("." + column + "=?")) {
+        return statement;
+      }
+    }
+    throw new AssertionError("no statement filters by " + column + ": " + RecordingStatementInspector.STATEMENTS);
+  }
+
+  private void assertIndexUsed(String index, String sql, Object... parameters) {
+    String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+
+    assertFalse(plan.contains("tableScan"), plan);
+    assertTrue(plan.contains(index), plan);
+  }
+
+  public static class RecordingStatementInspector implements StatementInspector {
+
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      STATEMENTS.add(sql);
+      return sql;
+    }
+  }
+}
@@ -6,6 +6,8 @@ import ch.uzh.ifi.hase.soprafs24.rest.dto.UserClientVersionDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -36,7 +38,7 @@ public class DTOMapperTest {
     user.setPassword("Firstname Lastname");
     user.setUsername("firstname@lastname");
     user.setStatus(UserStatus.OFFLINE);
-    user.setToken("1");
+    user.setToken(UUID.randomUUID());
 
     // MAP -> Create UserGetDTO
     UserClientVersionDTO userGetDTO = DTOMapper.INSTANCE.convertEntityToUserClientVersionDTO(user);
@@ -45,5 +47,6 @@ public class DTOMapperTest {
     assertEquals(user.getId(), userGetDTO.getId());
     assertEquals(user.getUsername(), userGetDTO.getUsername());
     assertEquals(user.getStatus(), userGetDTO.getStatus());
+    assertEquals(user.getToken(), userGetDTO.getToken());
   }
 }
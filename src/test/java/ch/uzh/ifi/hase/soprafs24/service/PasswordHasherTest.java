@@ -0,0 +1,59 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+  private PasswordHasher passwordHasher;
+
+  @BeforeEach
+  public void setup() {
+    passwordHasher = new PasswordHasher(4, 1, 1);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    passwordHasher.shutdown();
+  }
+
+  @Test
+  public void hash_thenMatches() {
+    String hash = passwordHasher.hash("testPassword").join();
+
+    assertNotEquals("testPassword", hash);
+    assertTrue(passwordHasher.matches("testPassword", hash).join());
+    assertFalse(passwordHasher.matches("wrongPassword", hash).join());
+    assertFalse(passwordHasher.needsRehash(hash));
+  }
+
+  @Test
+  public void needsRehash_otherCostOrPlaintext() {
+    String hash = new PasswordHasher(5, 1, 1).hash("testPassword").join();
+
+    assertTrue(passwordHasher.needsRehash(hash));
+    assertTrue(passwordHasher.needsRehash("testPassword"));
+    assertTrue(passwordHasher.matches("testPassword", "testPassword").join());
+  }
+
+  @Test
+  public void hash_queueFull_rejectedWith503() {
+    // one thread and one queue slot, a single hash at cost 12 takes well over 100ms
+    PasswordHasher saturatedHasher = new PasswordHasher(12, 1, 1);
+    try {
+      saturatedHasher.hash("running");
+      saturatedHasher.hash("queued");
+
+      ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+          () -> saturatedHasher.hash("rejected"));
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    } finally {
+      saturatedHasher.shutdown();
+    }
+  }
+}
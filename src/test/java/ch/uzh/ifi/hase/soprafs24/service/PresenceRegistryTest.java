@@ -0,0 +1,146 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PresenceRegistryTest {
+
+  private MutableClock clock;
+
+  private PresenceRegistry presenceRegistry;
+
+  @BeforeEach
+  public void setup() {
+    clock = new MutableClock();
+    presenceRegistry = new PresenceRegistry(Duration.ofMinutes(5), clock);
+  }
+
+  @Test
+  public void statusOf_unknownUser_isOffline() {
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(1L));
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(null));
+  }
+
+  @Test
+  public void drainDirty_returnsLatestStatusOnce() {
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.markOffline(1L);
+    presenceRegistry.markOnline(2L);
+
+    Map<Long, UserStatus> changes = presenceRegistry.drainDirty();
+
+    assertEquals(2, changes.size());
+    assertEquals(UserStatus.OFFLINE, changes.get(1L));
+    assertEquals(UserStatus.ONLINE, changes.get(2L));
+    assertTrue(presenceRegistry.drainDirty().isEmpty());
+  }
+
+  @Test
+  public void applyWritten_changesStatusWithoutScheduledWrite() {
+    presenceRegistry.markOnline(1L);
+    long changes = presenceRegistry.statusChangeCount();
+
+    presenceRegistry.applyWritten(Arrays.asList(1L, 2L), UserStatus.OFFLINE);
+
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(1L));
+    assertEquals(changes + 1, presenceRegistry.statusChangeCount());
+    // the dirty entry of the earlier login now reports the written status
+    assertEquals(Collections.singletonMap(1L, UserStatus.OFFLINE), presenceRegistry.drainDirty());
+  }
+
+  @Test
+  public void heartbeat_whileOnline_isNotAChange() {
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.drainDirty();
+
+    presenceRegistry.heartbeat(1L);
+
+    assertTrue(presenceRegistry.drainDirty().isEmpty());
+  }
+
+  @Test
+  public void expireStale_withoutHeartbeat_setsOffline() {
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.markOnline(2L);
+    presenceRegistry.drainDirty();
+
+    clock.advance(Duration.ofMinutes(4));
+    presenceRegistry.heartbeat(2L);
+    clock.advance(Duration.ofMinutes(2));
+
+    assertEquals(1, presenceRegistry.expireStale());
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(1L));
+    assertEquals(UserStatus.ONLINE, presenceRegistry.statusOf(2L));
+    assertEquals(Collections.singletonMap(1L, UserStatus.OFFLINE), presenceRegistry.drainDirty());
+  }
+
+  @Test
+  public void heartbeat_afterExplicitOffline_staysOfflineUntilLogin() {
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.markOnline(2L);
+    presenceRegistry.markOffline(1L);
+    presenceRegistry.applyWritten(Collections.singletonList(2L), UserStatus.OFFLINE);
+    presenceRegistry.drainDirty();
+    long changes = presenceRegistry.statusChangeCount();
+
+    presenceRegistry.heartbeat(1L);
+    presenceRegistry.heartbeat(2L);
+
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(1L));
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(2L));
+    assertEquals(changes, presenceRegistry.statusChangeCount());
+    assertTrue(presenceRegistry.drainDirty().isEmpty());
+
+    // a login makes heartbeats count again
+    presenceRegistry.markOnline(1L);
+    presenceRegistry.heartbeat(1L);
+    assertEquals(UserStatus.ONLINE, presenceRegistry.statusOf(1L));
+  }
+
+  @Test
+  public void heartbeat_afterTimeout_setsOnlineAgain() {
+    presenceRegistry.markOnline(1L);
+    clock.advance(Duration.ofMinutes(6));
+    presenceRegistry.expireStale();
+
+    presenceRegistry.heartbeat(1L);
+
+    assertEquals(UserStatus.ONLINE, presenceRegistry.statusOf(1L));
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now = Instant.EPOCH;
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+  private final AtomicLong now = new AtomicLong(-5_000_000_000L);
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private RateLimiter rateLimiter;
+
+  @BeforeEach
+  public void setup() {
+    MockEnvironment environment = new MockEnvironment()
+        .withProperty("user.rate-limit.login.per-username", "3/3s");
+    meterRegistry = new SimpleMeterRegistry();
+    rateLimiter = new RateLimiter(environment, meterRegistry, 100, Duration.ofMinutes(10), now::get);
+  }
+
+  @Test
+  public void tryAcquire_allowsBurstOfCapacityThenRejects() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "alice"));
+    }
+
+    long wait = rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "alice");
+
+    assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+    assertEquals(1, meterRegistry.get("users.rate-limit.rejected").tag("endpoint", "login").counter().count());
+    // other keys have their own bucket
+    assertEquals(0, rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "bob"));
+  }
+
+  @Test
+  public void tryAcquire_refillsOneTokenPerInterval() {
+    for (int i = 0; i < 3; i++) {
+      rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "alice");
+    }
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    assertEquals(0, rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "alice"));
+    assertTrue(rateLimiter.tryAcquire("login", RateLimiter.PER_USERNAME, "alice") > 0);
+  }
+
+  @Test
+  public void tryAcquire_withoutConfiguredLimit_isUnlimited() {
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, rateLimiter.tryAcquire("login", RateLimiter.PER_IP, "127.0.0.1"));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.ReactiveUserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class ReactiveUserServiceTest {
+
+  private ReactiveUserRepository reactiveUserRepository;
+
+  private PasswordHasher passwordHasher;
+
+  private UsernameFilter usernameFilter;
+
+  private ReactiveUserService reactiveUserService;
+
+  @BeforeEach
+  public void setup() {
+    reactiveUserRepository = Mockito.mock(ReactiveUserRepository.class);
+    passwordHasher = Mockito.mock(PasswordHasher.class);
+    usernameFilter = Mockito.mock(UsernameFilter.class);
+    reactiveUserService = new ReactiveUserService(reactiveUserRepository, new UserTokenCache(100, Duration.ofMinutes(1)),
+        new PresenceRegistry(Duration.ofMinutes(5)), passwordHasher,
+        Mockito.mock(UserWriteBehind.class), new UserMetrics(new SimpleMeterRegistry()), usernameFilter);
+
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("testUsername");
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.ONLINE);
+    Mockito.when(reactiveUserRepository.findById(1L)).thenReturn(Mono.just(user));
+  }
+
+  @Test
+  public void createUser_registeredConcurrently_conflict() {
+    // the name is free at the lookup but taken by the time of the insert
+    Mockito.when(reactiveUserRepository.findByUsername("newUsername")).thenReturn(Mono.empty());
+    Mockito.when(passwordHasher.hash("testPassword")).thenReturn(CompletableFuture.completedFuture("hash"));
+    Mockito.when(reactiveUserRepository.insert(Mockito.any()))
+        .thenReturn(Mono.error(new DataIntegrityViolationException("IDX_USER_USERNAME")));
+    UsernamePasswordDTO input = new UsernamePasswordDTO();
+    input.setUsername("newUsername");
+    input.setPassword("testPassword");
+
+    StepVerifier.create(reactiveUserService.createUser(input))
+        .expectErrorMatches(e -> e instanceof ResponseStatusException
+            && ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+        .verify();
+    Mockito.verify(usernameFilter).add("newUsername");
+  }
+
+  @Test
+  public void saveUserNameBirthDate_takenUsername_conflict() {
+    Mockito.when(reactiveUserRepository.updateProfile(1L, "takenUsername", null))
+        .thenReturn(Mono.error(new DataIntegrityViolationException("IDX_USER_USERNAME")));
+    UsernameBirthDateDTO input = new UsernameBirthDateDTO();
+    input.setInputUsername("takenUsername");
+
+    StepVerifier.create(reactiveUserService.saveUserNameBirthDate(input, 1L))
+        .expectErrorMatches(e -> e instanceof ResponseStatusException
+            && ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+        .verify();
+    Mockito.verify(usernameFilter).add("takenUsername");
+  }
+
+  @Test
+  public void saveUserNameBirthDate_malformedBirthDate_badRequest() {
+    UsernameBirthDateDTO input = new UsernameBirthDateDTO();
+    input.setInputBirthDate("01.01.2000");
+
+    StepVerifier.create(reactiveUserService.saveUserNameBirthDate(input, 1L))
+        .expectErrorMatches(e -> e instanceof ResponseStatusException
+            && ((ResponseStatusException) e).getStatus() == HttpStatus.BAD_REQUEST)
+        .verify();
+  }
+}
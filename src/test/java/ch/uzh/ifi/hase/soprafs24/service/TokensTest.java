@@ -0,0 +1,42 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokensTest {
+
+  @Test
+  public void parse_canonicalForm_sameAsUuidFromString() {
+    for (int i = 0; i < 100; i++) {
+      UUID token = UUID.randomUUID();
+      assertEquals(token, Tokens.parse(token.toString()));
+      assertEquals(token, Tokens.parse(token.toString().toUpperCase()));
+    }
+    assertEquals(new UUID(-1L, -1L), Tokens.parse("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+  }
+
+  @Test
+  public void parse_charRange_sameAsString() {
+    UUID token = UUID.randomUUID();
+    char[] chars = ("\"" + token + "\"").toCharArray();
+
+    assertEquals(token, Tokens.parse(chars, 1, Tokens.LENGTH));
+  }
+
+  @Test
+  public void parse_notAToken_null() {
+    assertNull(Tokens.parse(null));
+    assertNull(Tokens.parse(""));
+    assertNull(Tokens.parse("1"));
+    // short form UUID.fromString accepts
+    assertNull(Tokens.parse("1-2-3-4-5"));
+    // no dashes, misplaced dash, non-hex digit, non-ASCII character
+    assertNull(Tokens.parse("000000000000000000000000000000000000"));
+    assertNull(Tokens.parse("0000000-00000-0000-0000-000000000000"));
+    assertNull(Tokens.parse("g0000000-0000-0000-0000-000000000000"));
+    assertNull(Tokens.parse("\u00e40000000-0000-0000-0000-000000000000"));
+  }
+}
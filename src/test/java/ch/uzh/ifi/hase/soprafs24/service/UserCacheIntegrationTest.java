@@ -0,0 +1,144 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that User lookups are served from the second-level cache and that
+ * updates through the UserService evict or replace the cached entries.
+ * Presence writes run on their usual schedule and must not evict anything.
+ */
+@WebAppConfiguration
+@SpringBootTest
+public class UserCacheIntegrationTest {
+
+  @Qualifier("userRepository")
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private UserWriteBehind userWriteBehind;
+
+  @Autowired
+  private PresenceRegistry presenceRegistry;
+
+  @Autowired
+  private PresenceWriteBehind presenceWriteBehind;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Statistics statistics;
+
+  private User createdUser;
+
+  @BeforeEach
+  public void setup() {
+    userRepository.deleteAll();
+
+    SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    sessionFactory.getCache().evictAllRegions();
+    statistics = sessionFactory.getStatistics();
+
+    UsernamePasswordDTO testUser = new UsernamePasswordDTO();
+    testUser.setPassword("testPassword");
+    testUser.setUsername("testUsername");
+    createdUser = userService.createUser(testUser, "hash");
+    statistics.clear();
+  }
+
+  @Test
+  public void findById_servedFromSecondLevelCache() {
+    userRepository.findById((long) createdUser.getId());
+    userRepository.findById((long) createdUser.getId());
+
+    assertTrue(statistics.getSecondLevelCacheHitCount() >= 1);
+    assertTrue(entityManagerFactory.unwrap(SessionFactory.class).getCache()
+        .containsEntity(User.class, createdUser.getId()));
+  }
+
+  @Test
+  public void findByUsername_servedFromNaturalIdCache() {
+    userRepository.findByUsername("testUsername");
+    User found = userRepository.findByUsername("testUsername");
+
+    assertEquals(createdUser.getId(), found.getId());
+    assertTrue(statistics.getNaturalIdCacheHitCount() >= 1);
+  }
+
+  @Test
+  public void findByToken_servedFromQueryCache() {
+    userRepository.findByToken(createdUser.getToken());
+    userRepository.findByToken(createdUser.getToken());
+
+    assertEquals(1, statistics.getQueryCacheHitCount());
+  }
+
+  @Test
+  public void saveUserNameBirthDate_updatesCachedEntries() {
+    // given: the user is cached by id, username and token
+    userRepository.findById((long) createdUser.getId());
+    userRepository.findByUsername("testUsername");
+    userRepository.findByToken(createdUser.getToken());
+
+    UsernameBirthDateDTO input = new UsernameBirthDateDTO();
+    input.setInputUsername("renamedUsername");
+
+    // when
+    userService.saveUserNameBirthDate(input, createdUser.getId());
+    userWriteBehind.flush();
+
+    // then
+    assertEquals("renamedUsername", userRepository.findById((long) createdUser.getId()).getUsername());
+    assertNull(userRepository.findByUsername("testUsername"));
+    assertEquals(createdUser.getId(), userRepository.findByUsername("renamedUsername").getId());
+    assertEquals("renamedUsername", userRepository.findByToken(createdUser.getToken()).getUsername());
+  }
+
+  @Test
+  public void presenceFlush_keepsCachedEntries() {
+    // given: the user is cached by id, username and token
+    userRepository.findById((long) createdUser.getId());
+    userRepository.findByUsername("testUsername");
+    userRepository.findByToken(createdUser.getToken());
+    statistics.clear();
+
+    // when
+    presenceRegistry.markOffline(createdUser.getId());
+    presenceWriteBehind.flush();
+
+    // then: the status is written and every lookup is still served from the cache
+    assertEquals(UserStatus.OFFLINE.ordinal(), jdbcTemplate.queryForObject(
+        "select STATUS from USER where ID = ?", Integer.class, createdUser.getId()));
+    userRepository.findById((long) createdUser.getId());
+    userRepository.findByUsername("testUsername");
+    userRepository.findByToken(createdUser.getToken());
+    assertEquals(0, statistics.getSecondLevelCacheMissCount());
+    assertEquals(0, statistics.getNaturalIdCacheMissCount());
+    assertEquals(0, statistics.getQueryCacheMissCount());
+    assertEquals(1, statistics.getQueryCacheHitCount());
+  }
+}
@@ -0,0 +1,66 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+
+public class UserEventBroadcasterTest {
+
+  private UserEventBroadcaster userEventBroadcaster;
+
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    userEventBroadcaster = Mockito.spy(
+        new UserEventBroadcaster(new PresenceRegistry(Duration.ofMinutes(5)), 10, 10, Duration.ofMinutes(1), 1));
+
+    user = new User();
+    user.setId(1L);
+    user.setUsername("renamed");
+  }
+
+  @AfterEach
+  public void teardown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    userEventBroadcaster.shutdown();
+  }
+
+  @Test
+  public void profileChanged_withoutTransaction_publishedRightAway() {
+    userEventBroadcaster.profileChanged(user);
+
+    Mockito.verify(userEventBroadcaster).publish(Mockito.any());
+  }
+
+  @Test
+  public void profileChanged_insideTransaction_publishedAfterCommit() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    userEventBroadcaster.profileChanged(user);
+    Mockito.verify(userEventBroadcaster, Mockito.never()).publish(Mockito.any());
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    Mockito.verify(userEventBroadcaster).publish(Mockito.any());
+  }
+
+  @Test
+  public void profileChanged_rolledBack_notPublished() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    userEventBroadcaster.profileChanged(user);
+    TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    Mockito.verify(userEventBroadcaster, Mockito.never()).publish(Mockito.any());
+  }
+}
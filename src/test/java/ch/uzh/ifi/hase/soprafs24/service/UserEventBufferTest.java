@@ -0,0 +1,62 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserEventDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserEventBufferTest {
+
+  @Test
+  public void offer_onlyFirstOfferSchedulesDrain() {
+    UserEventBuffer buffer = new UserEventBuffer(10);
+
+    assertTrue(buffer.offer(UserEventDTO.status(1L, UserStatus.ONLINE)));
+    assertFalse(buffer.offer(UserEventDTO.status(2L, UserStatus.ONLINE)));
+
+    assertEquals(2, buffer.poll().events.size());
+    // drained and idle again -> the next offer schedules a new drain
+    assertNull(buffer.poll());
+    assertTrue(buffer.offer(UserEventDTO.status(1L, UserStatus.OFFLINE)));
+  }
+
+  @Test
+  public void offer_sameUser_coalesced() {
+    UserEventBuffer buffer = new UserEventBuffer(10);
+
+    buffer.offer(UserEventDTO.status(1L, UserStatus.ONLINE));
+    buffer.offer(UserEventDTO.profile(1L, "renamed", LocalDate.of(2000, 1, 1)));
+    buffer.offer(UserEventDTO.status(1L, UserStatus.OFFLINE));
+
+    UserEventBuffer.Batch batch = buffer.poll();
+    assertEquals(1, batch.events.size());
+    UserEventDTO event = batch.events.get(0);
+    assertEquals(UserStatus.OFFLINE, event.getStatus());
+    assertEquals("renamed", event.getUsername());
+    assertEquals(LocalDate.of(2000, 1, 1), event.getBirthDate());
+  }
+
+  @Test
+  public void offer_overCapacity_resyncInsteadOfEvents() {
+    UserEventBuffer buffer = new UserEventBuffer(2);
+
+    buffer.offer(UserEventDTO.status(1L, UserStatus.ONLINE));
+    buffer.offer(UserEventDTO.status(2L, UserStatus.ONLINE));
+    buffer.offer(UserEventDTO.status(3L, UserStatus.ONLINE));
+    buffer.offer(UserEventDTO.status(4L, UserStatus.ONLINE));
+
+    UserEventBuffer.Batch batch = buffer.poll();
+    assertTrue(batch.resync);
+    assertTrue(batch.events.isEmpty());
+
+    // after the resync events are buffered again
+    buffer.offer(UserEventDTO.status(5L, UserStatus.ONLINE));
+    batch = buffer.poll();
+    assertFalse(batch.resync);
+    assertEquals(1, batch.events.size());
+  }
+}
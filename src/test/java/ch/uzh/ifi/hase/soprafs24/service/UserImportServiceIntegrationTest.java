@@ -0,0 +1,97 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ImportResult;
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserImportReportDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@WebAppConfiguration
+@SpringBootTest(properties = { "user.bulk.chunk-size=2", "user.password.bcrypt-strength=4" })
+public class UserImportServiceIntegrationTest {
+
+  @Qualifier("userRepository")
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private UserImportService userImportService;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
+  @BeforeEach
+  public void setup() {
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void importUsers_reportsEveryEntry() {
+    // given
+    userService.createUser(user("existing", "password"), "hash");
+
+    List<UsernamePasswordDTO> input = Arrays.asList(
+        user("first", "password1"),
+        user("existing", "password2"),
+        user("second", "password3"),
+        user("first", "password4"),
+        user("", "password5"),
+        user("third", "password6"));
+
+    // when
+    UserImportReportDTO report = userImportService.importUsers(input);
+
+    // then
+    assertEquals(3, report.getCreated());
+    assertEquals(3, report.getFailed());
+    assertEquals(ImportResult.CREATED, report.getResults().get(0).getResult());
+    assertEquals(ImportResult.CONFLICT, report.getResults().get(1).getResult());
+    assertEquals(ImportResult.CREATED, report.getResults().get(2).getResult());
+    assertEquals(ImportResult.DUPLICATE, report.getResults().get(3).getResult());
+    assertEquals(ImportResult.INVALID, report.getResults().get(4).getResult());
+    assertEquals(ImportResult.CREATED, report.getResults().get(5).getResult());
+
+    User first = userRepository.findByUsername("first");
+    assertEquals(first.getId(), report.getResults().get(0).getId());
+    assertEquals(UserStatus.OFFLINE, first.getStatus());
+    assertTrue(passwordHasher.matches("password1", first.getPassword()).join());
+    assertEquals(4, userRepository.count());
+  }
+
+  @Test
+  public void importUsers_manyUsers_allCreated() {
+    List<UsernamePasswordDTO> input = new ArrayList<>();
+    for (int i = 0; i < 101; i++) {
+      input.add(user("user" + i, "password"));
+    }
+
+    UserImportReportDTO report = userImportService.importUsers(input);
+
+    assertEquals(101, report.getCreated());
+    assertEquals(101, userRepository.count());
+  }
+
+  private static UsernamePasswordDTO user(String username, String password) {
+    UsernamePasswordDTO user = new UsernamePasswordDTO();
+    user.setUsername(username);
+    user.setPassword(password);
+    return user;
+  }
+}
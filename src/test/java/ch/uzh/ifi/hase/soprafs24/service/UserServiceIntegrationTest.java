@@ -3,6 +3,7 @@ package ch.uzh.ifi.hase.soprafs24.service;
 import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernameBirthDateDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -10,11 +11,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.web.server.ResponseStatusException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.sql.Date;
+import java.util.concurrent.CompletionException;
+
 /**
  * Test class for the UserResource REST resource.
  *
@@ -31,6 +36,12 @@ public class UserServiceIntegrationTest {
   @Autowired
   private UserService userService;
 
+  @Autowired
+  private UserWriteBehind userWriteBehind;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
   @BeforeEach
   public void setup() {
     userRepository.deleteAll();
@@ -46,10 +57,11 @@ public class UserServiceIntegrationTest {
     testUser.setUsername("testUsername");
 
     // when
-    User createdUser = userService.createUser(testUser);
+    User createdUser = userService.createUser(testUser, passwordHasher.hash(testUser.getPassword()).join());
 
     // then
-    assertEquals(testUser.getPassword(), createdUser.getPassword());
+    assertNotEquals(testUser.getPassword(), createdUser.getPassword());
+    assertTrue(passwordHasher.matches(testUser.getPassword(), createdUser.getPassword()).join());
     assertEquals(testUser.getUsername(), createdUser.getUsername());
     assertNotNull(createdUser.getToken());
     assertEquals(UserStatus.ONLINE, createdUser.getStatus());
@@ -62,7 +74,7 @@ public class UserServiceIntegrationTest {
     UsernamePasswordDTO testUser = new UsernamePasswordDTO();
     testUser.setPassword("testPassword");
     testUser.setUsername("testUsername");
-    userService.createUser(testUser);
+    userService.createUser(testUser, "hash");
 
     // attempt to create second user with same username
     UsernamePasswordDTO testUser2 = new UsernamePasswordDTO();
@@ -70,6 +82,79 @@ public class UserServiceIntegrationTest {
     testUser2.setUsername("testUsername");
 
     // check that an error is thrown
-    assertThrows(ResponseStatusException.class, () -> userService.createUser(testUser2));
+    assertThrows(ResponseStatusException.class, () -> userService.createUser(testUser2, "hash"));
+  }
+
+  @Test
+  public void saveUserNameBirthDate_takenUsername_throwsConflict() {
+    UsernamePasswordDTO first = new UsernamePasswordDTO();
+    first.setPassword("testPassword");
+    first.setUsername("firstUsername");
+    userService.createUser(first, "hash");
+    UsernamePasswordDTO second = new UsernamePasswordDTO();
+    second.setPassword("testPassword");
+    second.setUsername("secondUsername");
+    User secondUser = userService.createUser(second, "hash");
+
+    UsernameBirthDateDTO input = new UsernameBirthDateDTO();
+    input.setInputUsername("firstUsername");
+
+    // the conflict is reported to the caller, not dropped at the next flush
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> userService.saveUserNameBirthDate(input, secondUser.getId()));
+    userWriteBehind.flush();
+
+    assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    assertEquals("secondUsername", userRepository.findById((long) secondUser.getId()).getUsername());
+  }
+
+  @Test
+  public void saveUserNameBirthDate_writtenWithNextFlush() {
+    UsernamePasswordDTO testUser = new UsernamePasswordDTO();
+    testUser.setPassword("testPassword");
+    testUser.setUsername("testUsername");
+    User createdUser = userService.createUser(testUser, "hash");
+
+    UsernameBirthDateDTO input = new UsernameBirthDateDTO();
+    input.setInputUsername("newUsername");
+    input.setInputBirthDate("2000-01-01");
+
+    // when
+    userService.saveUserNameBirthDate(input, createdUser.getId());
+    userWriteBehind.flush();
+
+    // then
+    User updatedUser = userRepository.findById((long) createdUser.getId());
+    assertEquals("newUsername", updatedUser.getUsername());
+    assertEquals(Date.valueOf("2000-01-01"), updatedUser.getBirthDate());
+    assertEquals(0, userWriteBehind.pendingCount());
+  }
+
+  @Test
+  public void checkLoginCorrect_validPassword_returnsUser() {
+    UsernamePasswordDTO testUser = new UsernamePasswordDTO();
+    testUser.setPassword("testPassword");
+    testUser.setUsername("testUsername");
+    userService.createUser(testUser, passwordHasher.hash(testUser.getPassword()).join());
+
+    User loggedInUser = userService.checkLoginCorrect(testUser).join();
+
+    assertEquals(testUser.getUsername(), loggedInUser.getUsername());
+  }
+
+  @Test
+  public void checkLoginCorrect_wrongPassword_fails() {
+    UsernamePasswordDTO testUser = new UsernamePasswordDTO();
+    testUser.setPassword("testPassword");
+    testUser.setUsername("testUsername");
+    userService.createUser(testUser, passwordHasher.hash(testUser.getPassword()).join());
+
+    UsernamePasswordDTO wrongPassword = new UsernamePasswordDTO();
+    wrongPassword.setPassword("wrongPassword");
+    wrongPassword.setUsername("testUsername");
+
+    CompletionException exception = assertThrows(CompletionException.class,
+        () -> userService.checkLoginCorrect(wrongPassword).join());
+    assertTrue(exception.getCause() instanceof ResponseStatusException);
   }
 }
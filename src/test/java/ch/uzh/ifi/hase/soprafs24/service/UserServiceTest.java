@@ -5,17 +5,20 @@ import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.UsernamePasswordDTO;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.web.server.ResponseStatusException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.sql.Date;
+import java.time.Duration;
 import java.util.UUID;
 
 public class UserServiceTest {
@@ -23,6 +26,32 @@ public class UserServiceTest {
   @Mock
   private UserRepository userRepository;
 
+  @Spy
+  private UserTokenCache userTokenCache = new UserTokenCache(100, Duration.ofMinutes(1));
+
+  @Mock
+  private UserWriteBehind userWriteBehind;
+
+  @Mock
+  private PasswordHasher passwordHasher;
+
+  @Spy
+  private PresenceRegistry presenceRegistry = new PresenceRegistry(Duration.ofMinutes(5));
+
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy
+  private UserMetrics userMetrics = new UserMetrics(meterRegistry);
+
+  @Spy
+  private UserRevision userRevision = new UserRevision();
+
+  @Mock
+  private UserEventBroadcaster userEventBroadcaster;
+
+  @Mock
+  private UsernameFilter usernameFilter;
+
   @InjectMocks
   private UserService userService;
 
@@ -37,7 +66,7 @@ public class UserServiceTest {
     testUser = new User();
     testUser.setPassword("testPassword");
     testUser.setUsername("testUsername");
-    testUser.setToken("1");
+    testUser.setToken(UUID.randomUUID());
     testUser.setStatus(UserStatus.ONLINE);
     testUser.setCreationDate(new Date(1));
     
@@ -49,16 +78,27 @@ public class UserServiceTest {
     // when -> any object is being save in the userRepository -> return the dummy
     // testUser
     Mockito.when(userRepository.save(Mockito.any())).thenReturn(testUser);
+    Mockito.when(usernameFilter.mightContain(Mockito.anyString())).thenReturn(true);
+  }
+
+  @Test
+  public void checkLoginCorrect_usernameNeverSeen_failsWithoutLookup() {
+    Mockito.when(usernameFilter.mightContain("testUsername")).thenReturn(false);
+
+    assertThrows(ResponseStatusException.class, () -> userService.checkLoginCorrect(testUserPasswordDTO));
+
+    Mockito.verify(userRepository, Mockito.never()).findByUsername(Mockito.anyString());
   }
 
   @Test
   public void createUser_validInputs_success() {
     // when -> any object is being save in the userRepository -> return the dummy
     // testUser
-    User createdUser = userService.createUser(testUserPasswordDTO);
+    User createdUser = userService.createUser(testUserPasswordDTO, "hash");
 
     // then
     Mockito.verify(userRepository, Mockito.times(1)).save(Mockito.any());
+    Mockito.verify(usernameFilter).add("testUsername");
 
     assertEquals(testUser.getPassword(), createdUser.getPassword());
     assertEquals(testUser.getUsername(), createdUser.getUsername());
@@ -66,16 +106,49 @@ public class UserServiceTest {
     assertEquals(UserStatus.ONLINE, createdUser.getStatus());
   }
 
+  @Test
+  public void createUser_incrementsRevision() {
+    testUser.setId(1L);
+    long before = userRevision.revision();
+
+    userService.createUser(testUserPasswordDTO, "hash");
+
+    assertEquals(before + 1, userRevision.revision());
+    assertEquals(userRevision.revision(), userRevision.revisionOf(1L));
+  }
+
   @Test
   public void createUser_duplicateUsername_throwsException() {
     // given -> a first user has already been created
-    User createdUser = userService.createUser(testUserPasswordDTO);
+    User createdUser = userService.createUser(testUserPasswordDTO, "hash");
 
     // when -> setup additional mocks for UserRepository
     Mockito.when(userRepository.findByUsername(Mockito.any())).thenReturn(createdUser);
 
     // then -> attempt to create second user with same user -> check that an error
     // is thrown
-    assertThrows(ResponseStatusException.class, () -> userService.createUser(testUserPasswordDTO));
+    assertThrows(ResponseStatusException.class, () -> userService.createUser(testUserPasswordDTO, "hash"));
+    assertEquals(1.0, meterRegistry.counter("users.registration.conflicts").count());
+  }
+
+  @Test
+  public void setUserOffline_knownUser_marksOfflineWithoutWrite() {
+    // given
+    testUser.setId(1L);
+    presenceRegistry.markOnline(1L);
+    Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(testUser);
+
+    // when
+    userService.fetchUserFromUsername("testUsername");
+
+    // then
+    assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(1L));
+    Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+    Mockito.verify(userRepository, Mockito.never()).flush();
+  }
+
+  @Test
+  public void setUserOffline_unknownUser_throwsException() {
+    assertThrows(ResponseStatusException.class, () -> userService.fetchUserFromUsername("unknown"));
   }
 }
@@ -0,0 +1,88 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.UserStatusUpdateReportDTO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@WebAppConfiguration
+@SpringBootTest(properties = "user.bulk.chunk-size=2")
+public class UserStatusServiceIntegrationTest {
+
+  @Qualifier("userRepository")
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserStatusService userStatusService;
+
+  @Autowired
+  private PresenceRegistry presenceRegistry;
+
+  @BeforeEach
+  public void setup() {
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void updateStatus_setsKnownUsersAndReportsUnknownOnes() {
+    // given
+    User alice = save("alice");
+    User bob = save("bob");
+    User carol = save("carol");
+    presenceRegistry.markOnline(alice.getId());
+    presenceRegistry.markOnline(bob.getId());
+    presenceRegistry.markOnline(carol.getId());
+
+    UserStatusUpdateDTO update = new UserStatusUpdateDTO();
+    update.setStatus(UserStatus.OFFLINE);
+    update.setIds(Arrays.asList(alice.getId(), -1L, bob.getId()));
+    update.setUsernames(Arrays.asList("bob", "carol", "nobody"));
+
+    // when
+    UserStatusUpdateReportDTO report = userStatusService.updateStatus(update);
+
+    // then
+    assertEquals(3, report.getUpdated());
+    assertEquals(Collections.singletonList(-1L), report.getUnknownIds());
+    assertEquals(Collections.singletonList("nobody"), report.getUnknownUsernames());
+    for (User user : userRepository.findAll()) {
+      assertEquals(UserStatus.OFFLINE, user.getStatus());
+      assertEquals(UserStatus.OFFLINE, presenceRegistry.statusOf(user.getId()));
+    }
+  }
+
+  @Test
+  public void updateStatus_withoutStatus_throwsBadRequest() {
+    UserStatusUpdateDTO update = new UserStatusUpdateDTO();
+    update.setIds(Collections.singletonList(1L));
+
+    assertThrows(ResponseStatusException.class, () -> userStatusService.updateStatus(update));
+  }
+
+  private User save(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("hash");
+    user.setToken(UUID.randomUUID());
+    user.setStatus(UserStatus.ONLINE);
+    user.setCreationDate(new Date(System.currentTimeMillis()));
+    return userRepository.saveAndFlush(user);
+  }
+}
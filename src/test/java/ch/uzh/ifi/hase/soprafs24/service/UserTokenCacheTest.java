@@ -0,0 +1,77 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserTokenCacheTest {
+
+  private static final UUID TOKEN = UUID.randomUUID();
+
+  private UserTokenCache userTokenCache;
+
+  private User testUser;
+
+  private AtomicInteger loads;
+
+  @BeforeEach
+  public void setup() {
+    userTokenCache = new UserTokenCache(100, Duration.ofMinutes(1));
+    loads = new AtomicInteger();
+
+    testUser = new User();
+    testUser.setId(1L);
+    testUser.setPassword("testPassword");
+    testUser.setUsername("testUsername");
+    testUser.setToken(TOKEN);
+    testUser.setStatus(UserStatus.ONLINE);
+    testUser.setCreationDate(new Date(1));
+  }
+
+  private User load(UUID token) {
+    loads.incrementAndGet();
+    return TOKEN.equals(token) ? testUser : null;
+  }
+
+  @Test
+  public void get_secondLookup_servedFromCache() {
+    User first = userTokenCache.get(TOKEN, this::load);
+    User second = userTokenCache.get(TOKEN, this::load);
+
+    assertEquals(1, loads.get());
+    assertEquals(testUser.getUsername(), second.getUsername());
+    assertNull(first.getPassword());
+    assertEquals(1, userTokenCache.hitCount());
+    assertEquals(1, userTokenCache.missCount());
+  }
+
+  @Test
+  public void get_unknownToken_notCached() {
+    UUID unknown = UUID.randomUUID();
+    assertNull(userTokenCache.get(unknown, this::load));
+    assertNull(userTokenCache.get(unknown, this::load));
+
+    assertEquals(2, loads.get());
+    assertEquals(2, userTokenCache.missCount());
+  }
+
+  @Test
+  public void invalidate_nextLookupReloads() {
+    userTokenCache.get(TOKEN, this::load);
+    testUser.setUsername("renamed");
+
+    userTokenCache.invalidate(TOKEN);
+
+    assertEquals("renamed", userTokenCache.get(TOKEN, this::load).getUsername());
+    assertEquals(2, loads.get());
+  }
+}
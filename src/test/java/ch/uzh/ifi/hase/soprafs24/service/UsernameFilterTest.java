@@ -0,0 +1,60 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UsernameFilterTest {
+
+  private UserRepository userRepository;
+
+  private UsernameFilter usernameFilter;
+
+  @BeforeEach
+  public void setup() {
+    userRepository = Mockito.mock(UserRepository.class);
+    Mockito.when(userRepository.streamUsernames()).thenReturn(Stream.of("alice", "bob"));
+    usernameFilter = new UsernameFilter(userRepository, Mockito.mock(PlatformTransactionManager.class), 10000, 0.01);
+  }
+
+  @Test
+  public void mightContain_beforeWarm_isAlwaysTrue() {
+    assertTrue(usernameFilter.mightContain("nobody"));
+  }
+
+  @Test
+  public void mightContain_afterWarm_knowsLoadedAndAddedNames() {
+    usernameFilter.warm();
+    usernameFilter.add("carol");
+
+    assertTrue(usernameFilter.mightContain("alice"));
+    assertTrue(usernameFilter.mightContain("bob"));
+    assertTrue(usernameFilter.mightContain("carol"));
+    assertFalse(usernameFilter.mightContain("dave"));
+  }
+
+  @Test
+  public void mightContain_falsePositiveRateWithinConfiguredBound() {
+    usernameFilter.warm();
+    for (int i = 0; i < 10000; i++) {
+      usernameFilter.add("user" + i);
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(usernameFilter.mightContain("user" + i));
+      if (usernameFilter.mightContain("other" + i)) {
+        falsePositives++;
+      }
+    }
+    // configured for 1%, allow for chance
+    assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+  }
+}